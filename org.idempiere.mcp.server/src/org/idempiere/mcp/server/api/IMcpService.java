@@ -25,6 +25,57 @@
 **********************************************************************/
 package org.idempiere.mcp.server.api;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonObject;
+
 public interface IMcpService {
     String processRequest(String jsonRequest, String authToken, String sessionId);
+
+    /**
+     * Process an already parsed JSON-RPC request and write the response to out as UTF-8 JSON.
+     * Nothing is written for notifications.
+     * @param request   parsed JSON-RPC request
+     * @param authToken
+     * @param sessionId
+     * @param out       response output, not closed by this method
+     * @return true if a response has been written
+     * @throws IOException
+     */
+    default boolean processRequest(JsonObject request, String authToken, String sessionId, OutputStream out) throws IOException {
+        String response = processRequest(request.toString(), authToken, sessionId);
+        if (response == null)
+            return false;
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(response);
+        writer.flush();
+        return true;
+    }
+
+    /**
+     * Refresh the token of a session with its refresh token, used to renew tokens before they expire
+     * @param sessionId
+     * @return true if the token has been refreshed
+     */
+    default boolean refreshToken(String sessionId) {
+        return false;
+    }
+
+    /**
+     * @return entity tag of the tools/list result, null if not supported
+     */
+    default String getToolsListETag() {
+        return null;
+    }
+
+    /**
+     * @return status of the service for the status endpoint, null if none
+     */
+    default JsonObject getStatus() {
+        return null;
+    }
 }
\ No newline at end of file
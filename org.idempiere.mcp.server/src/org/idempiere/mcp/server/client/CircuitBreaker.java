@@ -0,0 +1,134 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.client;
+
+/**
+ * Circuit breaker guarding the REST backend.
+ * <p>
+ * The breaker opens after a number of consecutive failures (connection errors, gateway and unavailable responses),
+ * so calls fail fast while the backend is down instead of tying up threads. Once the open period has elapsed, a
+ * single trial call is let through: its success closes the breaker, its failure opens it again.
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private long trialStartedAt = 0;
+    private long openCount = 0;
+    private long rejectedCount = 0;
+
+    /**
+     * @param failureThreshold number of consecutive failures opening the breaker
+     * @param openMs           time in milliseconds calls are rejected before a trial call is let through
+     */
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * @return true if a call may be sent, false if it must fail fast
+     */
+    synchronized boolean allowRequest() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+        case CLOSED:
+            return true;
+        case OPEN:
+            if (now - openedAt >= openMs) {
+                state = State.HALF_OPEN;
+                trialStartedAt = now;
+                return true;
+            }
+            break;
+        case HALF_OPEN:
+            // let another trial through if the previous one never reported back
+            if (now - trialStartedAt >= openMs) {
+                trialStartedAt = now;
+                return true;
+            }
+            break;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * A call ended without telling whether the backend is healthy. The breaker is unchanged, except that a
+     * trial call in progress no longer holds back the next one.
+     */
+    synchronized void onAbort() {
+        if (state == State.HALF_OPEN)
+            trialStartedAt = 0;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            openCount++;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    long getOpenMs() {
+        return openMs;
+    }
+}
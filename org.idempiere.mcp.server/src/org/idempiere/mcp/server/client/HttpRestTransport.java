@@ -0,0 +1,249 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import org.idempiere.mcp.server.config.McpConfig;
+
+/**
+ * {@link RestTransport} sending requests over HTTP to the REST endpoint of this server
+ */
+public class HttpRestTransport implements RestTransport {
+
+    private static final String ENV_REST_GZIP = "MCP_REST_GZIP";
+
+    // aborts responses still being received when their deadline passes, the request timeout only covers the
+    // wait for the response headers
+    private static final ScheduledThreadPoolExecutor deadlineTimer = createDeadlineTimer();
+
+    private final HttpClient client;
+    // ask the server for gzip encoded responses
+    private final boolean gzip;
+
+    public HttpRestTransport() {
+        this(null);
+    }
+
+    /**
+     * @param executor executor for asynchronous requests, null for the HttpClient default
+     */
+    public HttpRestTransport(Executor executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(20));
+        if (executor != null)
+            builder.executor(executor);
+        this.client = builder.build();
+        this.gzip = Boolean.parseBoolean(McpConfig.get(ENV_REST_GZIP, "true").trim());
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "mcp-rest-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(1, TimeUnit.MINUTES);
+        timer.allowCoreThreadTimeOut(true);
+        return timer;
+    }
+
+    /**
+     * The body is streamed, it is closed if it is still being read when the deadline of the request passes
+     */
+    @Override
+    public RestResponse send(RestRequest request) throws Exception {
+        HttpResponse<InputStream> response = client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = request.getDeadline() > 0 ? new DeadlineInputStream(response.body(), request) : response.body();
+        return new RestResponse(response.statusCode(), response.headers().map(), decode(response.headers(), body));
+    }
+
+    /**
+     * Send without blocking a thread while waiting for the server. The body is received in full, so reading the
+     * response never blocks either. The exchange is cancelled if the body is still being received when the
+     * deadline of the request passes.
+     */
+    @Override
+    public CompletableFuture<RestResponse> sendAsync(RestRequest request, Executor executor) {
+        CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(toHttpRequest(request),
+                HttpResponse.BodyHandlers.ofByteArray());
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> timeout = request.getDeadline() > 0 ? deadlineTimer.schedule(() -> {
+            expired.set(true);
+            exchange.cancel(true);
+        }, request.getDeadline() - System.currentTimeMillis(), TimeUnit.MILLISECONDS) : null;
+        return exchange.handle((response, error) -> {
+            if (timeout != null)
+                timeout.cancel(false);
+            if (error != null) {
+                if (expired.get())
+                    throw new CompletionException(deadlineExceeded(request));
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            try {
+                return new RestResponse(response.statusCode(), response.headers().map(),
+                        decode(response.headers(), new ByteArrayInputStream(response.body())));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static HttpTimeoutException deadlineExceeded(RestRequest request) {
+        return new HttpTimeoutException("Deadline passed while receiving the response of " + request.getMethod() + " "
+                + request.getPath());
+    }
+
+    /**
+     * Response body closed by the deadline timer if it is still open when the deadline of the request passes.
+     * A read after that fails with {@link HttpTimeoutException} instead of returning a truncated body.
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+        private final RestRequest request;
+        private final ScheduledFuture<?> timeout;
+        private volatile boolean expired;
+
+        DeadlineInputStream(InputStream in, RestRequest request) {
+            super(in);
+            this.request = request;
+            this.timeout = deadlineTimer.schedule(this::expire, request.getDeadline() - System.currentTimeMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        private void checkExpired(IOException cause) throws IOException {
+            if (expired) {
+                HttpTimeoutException e = deadlineExceeded(request);
+                if (cause != null)
+                    e.initCause(cause);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkExpired(null);
+            try {
+                int b = super.read();
+                checkExpired(null);
+                return b;
+            } catch (IOException e) {
+                checkExpired(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkExpired(null);
+            try {
+                int n = super.read(b, off, len);
+                checkExpired(null);
+                return n;
+            } catch (IOException e) {
+                checkExpired(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            timeout.cancel(false);
+            super.close();
+        }
+    }
+
+    /**
+     * @param headers response headers
+     * @param body    response body
+     * @return body, decompressed as it is read if the server sent it gzip encoded
+     * @throws IOException
+     */
+    private static InputStream decode(HttpHeaders headers, InputStream body) throws IOException {
+        String encoding = headers.firstValue("Content-Encoding").orElse(null);
+        if (encoding == null || !"gzip".equalsIgnoreCase(encoding.trim()))
+            return body;
+        // no gzip header to read for an empty body
+        PushbackInputStream in = new PushbackInputStream(body, 1);
+        int first = in.read();
+        if (first < 0)
+            return in;
+        in.unread(first);
+        return new GZIPInputStream(in, 8192);
+    }
+
+    /**
+     * @param request
+     * @return HTTP request for the REST API base URL
+     */
+    protected HttpRequest toHttpRequest(RestRequest request) {
+        String url = McpConfig.getBaseUrl() + request.getPath();
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(url));
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            builder.header(entry.getKey(), entry.getValue());
+        }
+        if (gzip && request.getHeader("Accept-Encoding") == null)
+            builder.header("Accept-Encoding", "gzip");
+        // abort the exchange if no response arrives before the deadline
+        if (request.getDeadline() > 0)
+            builder.timeout(Duration.ofMillis(Math.max(1, request.getDeadline() - System.currentTimeMillis())));
+        byte[] body = request.getBody();
+        builder.method(request.getMethod(), body != null ? BodyPublishers.ofByteArray(body) : BodyPublishers.noBody());
+        return builder.build();
+    }
+}
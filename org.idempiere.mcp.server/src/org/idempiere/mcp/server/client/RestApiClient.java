@@ -25,36 +25,186 @@
 **********************************************************************/
 package org.idempiere.mcp.server.client;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpRequest.BodyPublishers;
-import java.time.Duration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.compiere.util.CLogger;
 import org.idempiere.mcp.server.config.McpConfig;
 import org.idempiere.mcp.server.web.McpServlet;
+import org.idempiere.mcp.server.web.McpSession;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.util.tracker.ServiceTracker;
+
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 public class RestApiClient {
 
+    private static final String ENV_REST_ASYNC_THREADS = "MCP_REST_ASYNC_THREADS";
+    private static final String ENV_REST_RETRY_MAX = "MCP_REST_RETRY_MAX";
+    private static final String ENV_REST_RETRY_BACKOFF_MS = "MCP_REST_RETRY_BACKOFF_MS";
+    private static final String ENV_REST_BREAKER_FAILURE_THRESHOLD = "MCP_REST_BREAKER_FAILURE_THRESHOLD";
+    private static final String ENV_REST_BREAKER_OPEN_MS = "MCP_REST_BREAKER_OPEN_MS";
+    private static final String ENV_TOOL_DEADLINE_MS = "MCP_TOOL_DEADLINE_MS";
+    private static final long DEFAULT_TOOL_DEADLINE_MS = 60000;
+    // processes and reports routinely run longer than other tools
+    private static final long DEFAULT_PROCESS_DEADLINE_MS = 300000;
+    // deadline of the tool call running on the current thread, captured by every request it sends
+    private static final ThreadLocal<Long> currentDeadline = new ThreadLocal<>();
+    // upper bound of the backoff between two retries
+    private static final long RETRY_MAX_BACKOFF_MS = 5000;
+    // maximum time to wait for a token refresh run by another call of the same session
+    private static final long TOKEN_REFRESH_WAIT_SECONDS = 30;
+
     private final CLogger log = CLogger.getCLogger(RestApiClient.class);
-    private final HttpClient client;
+    // runs the HTTP client and the completion stages of the async API
+    private final ExecutorService asyncExecutor;
+    private final RestTransport httpTransport;
+    // in-process transports registered as OSGi service, null if not running in an OSGi framework
+    private final ServiceTracker<RestTransport, RestTransport> transportTracker;
     private final Gson gson;
+    // fails calls fast while the backend is unhealthy
+    private final CircuitBreaker breaker;
+    // number of retries of a failed GET, 0 to disable
+    private final int retryMax;
+    private final long retryBackoffMs;
+    private final AtomicLong retryCount = new AtomicLong();
+    // deadline budget of calls outside of a tool family
+    private final long defaultDeadlineMs;
+    private final Map<String, Long> familyDeadlineMs = new ConcurrentHashMap<>();
+    private final AtomicLong deadlineExceededCount = new AtomicLong();
 
     public RestApiClient() {
-        this.client = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1)
-                .connectTimeout(Duration.ofSeconds(20))
-                .build();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.asyncExecutor = createAsyncExecutor();
+        this.httpTransport = new HttpRestTransport(asyncExecutor);
+        this.transportTracker = openTransportTracker();
+        this.gson = new Gson();
+        this.retryMax = Math.max(0, getIntConfig(ENV_REST_RETRY_MAX, 2));
+        this.retryBackoffMs = Math.max(1, getIntConfig(ENV_REST_RETRY_BACKOFF_MS, 200));
+        this.breaker = new CircuitBreaker(Math.max(1, getIntConfig(ENV_REST_BREAKER_FAILURE_THRESHOLD, 5)),
+                Math.max(1000, getIntConfig(ENV_REST_BREAKER_OPEN_MS, 30000)));
+        this.defaultDeadlineMs = getLongConfig(ENV_TOOL_DEADLINE_MS, DEFAULT_TOOL_DEADLINE_MS);
+    }
+
+    private static long getLongConfig(String key, long defaultValue) {
+        try {
+            long value = Long.parseLong(McpConfig.get(key, Long.toString(defaultValue)).trim());
+            return value > 0 ? value : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Deadline budget of a tool family, configured with MCP_TOOL_DEADLINE_MS_&lt;FAMILY&gt; and defaulting to
+     * MCP_TOOL_DEADLINE_MS
+     * @param family tool family, e.g. model, window or process
+     * @return budget in milliseconds
+     */
+    public long getDeadlineMs(String family) {
+        if (family == null || family.isEmpty())
+            return defaultDeadlineMs;
+        return familyDeadlineMs.computeIfAbsent(family.toLowerCase(Locale.ENGLISH), key -> getLongConfig(
+                ENV_TOOL_DEADLINE_MS + "_" + key.toUpperCase(Locale.ENGLISH),
+                "process".equals(key) ? Math.max(defaultDeadlineMs, DEFAULT_PROCESS_DEADLINE_MS) : defaultDeadlineMs));
+    }
+
+    /**
+     * Set the deadline of the REST calls sent by the current thread, including the calls of the async API
+     * started by it. Calls sent without a deadline get the default budget.
+     * @param deadline epoch milliseconds, 0 to clear
+     */
+    public static void setDeadline(long deadline) {
+        if (deadline > 0)
+            currentDeadline.set(deadline);
+        else
+            currentDeadline.remove();
+    }
+
+    private static int getIntConfig(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(McpConfig.get(key, Integer.toString(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static ExecutorService createAsyncExecutor() {
+        int threads = getIntConfig(ENV_REST_ASYNC_THREADS, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "mcp-rest-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Math.max(1, threads), factory);
+    }
+
+    private static ServiceTracker<RestTransport, RestTransport> openTransportTracker() {
+        Bundle bundle = FrameworkUtil.getBundle(RestApiClient.class);
+        BundleContext context = bundle != null ? bundle.getBundleContext() : null;
+        if (context == null)
+            return null;
+        ServiceTracker<RestTransport, RestTransport> tracker = new ServiceTracker<>(context, RestTransport.class, null);
+        tracker.open();
+        return tracker;
+    }
+
+    /**
+     * @return state of the circuit breaker and retry counters
+     */
+    public JsonObject getStatus() {
+        JsonObject status = new JsonObject();
+        JsonObject circuitBreaker = new JsonObject();
+        circuitBreaker.addProperty("state", breaker.getState().name());
+        circuitBreaker.addProperty("consecutiveFailures", breaker.getConsecutiveFailures());
+        circuitBreaker.addProperty("failureThreshold", breaker.getFailureThreshold());
+        circuitBreaker.addProperty("openMillis", breaker.getOpenMs());
+        circuitBreaker.addProperty("openTotal", breaker.getOpenCount());
+        circuitBreaker.addProperty("rejectedTotal", breaker.getRejectedCount());
+        status.add("circuitBreaker", circuitBreaker);
+        JsonObject retry = new JsonObject();
+        retry.addProperty("maxRetries", retryMax);
+        retry.addProperty("backoffMillis", retryBackoffMs);
+        retry.addProperty("retriedTotal", retryCount.get());
+        status.add("retry", retry);
+        JsonObject deadline = new JsonObject();
+        deadline.addProperty("defaultMillis", defaultDeadlineMs);
+        deadline.addProperty("exceededTotal", deadlineExceededCount.get());
+        status.add("deadline", deadline);
+        return status;
+    }
+
+    /**
+     * Stop tracking in-process transports and shut down the async executor
+     */
+    public void close() {
+        if (transportTracker != null)
+            transportTracker.close();
+        asyncExecutor.shutdown();
     }
 
     public JsonElement get(String path, String token) throws Exception {
@@ -81,23 +231,371 @@ public class RestApiClient {
         return executeBinary("GET", path, null, token, accept);
     }
 
-    private HttpRequest.Builder createBuilder(String path, String token, String accept) {
+    /**
+     * GET a JSON resource without reading the body, for callers that stream it to their own output.
+     * @param path
+     * @param token
+     * @return successful response, the caller must close it
+     * @throws Exception
+     */
+    public RestResponse getStream(String path, String token) throws Exception {
+        return getStream(path, token, "application/json");
+    }
+
+    /**
+     * GET a resource of any content type without reading the body.
+     * @param path
+     * @param token
+     * @param accept accepted content type
+     * @return successful response, the caller must close it
+     * @throws Exception
+     */
+    public RestResponse getStream(String path, String token, String accept) throws Exception {
+        RestRequest request = createRequest("GET", path, token, accept);
+        request.header("Content-Type", "application/json");
+
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Executing Stream GET " + path);
+        }
+
+        RestResponse response = send(request);
+        checkResponse(response);
+        return response;
+    }
+
+    /**
+     * Conditional GET revalidating a cached copy of a resource with its validators.
+     * @param path
+     * @param token
+     * @param accept       accepted content type
+     * @param etag         ETag of the cached copy, null if none
+     * @param lastModified Last-Modified of the cached copy, null if none
+     * @return status 304 response if the cached copy is current, otherwise the successful response. The caller
+     *         must close it
+     * @throws Exception
+     */
+    public RestResponse getConditional(String path, String token, String accept, String etag, String lastModified)
+            throws Exception {
+        RestRequest request = createRequest("GET", path, token, accept);
+        if (etag != null)
+            request.header("If-None-Match", etag);
+        if (lastModified != null)
+            request.header("If-Modified-Since", lastModified);
+
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Executing Conditional GET " + path);
+        }
+
+        RestResponse response = send(request);
+        if (response.getStatusCode() != 304)
+            checkResponse(response);
+        return response;
+    }
+
+    // --- Async API, the returned futures complete on the async executor ---
+
+    public CompletableFuture<JsonElement> getAsync(String path, String token) {
+        return executeAsync("GET", path, null, token);
+    }
+
+    public CompletableFuture<JsonElement> postAsync(String path, JsonObject data, String token) {
+        return executeAsync("POST", path, data, token);
+    }
+
+    public CompletableFuture<JsonElement> putAsync(String path, JsonObject data, String token) {
+        return executeAsync("PUT", path, data, token);
+    }
+
+    public CompletableFuture<JsonElement> deleteAsync(String path, String token) {
+        return executeAsync("DELETE", path, null, token);
+    }
+
+    public CompletableFuture<String> getYamlAsync(String path, String token) {
+        RestRequest request = createRequest("GET", path, token, "application/yaml");
+        return read(sendAsync(request), response -> {
+            checkResponse(response);
+            return response.readString();
+        });
+    }
+
+    public CompletableFuture<byte[]> getBinaryAsync(String path, String token, String accept) {
+        RestRequest request = createRequest("GET", path, token, accept);
+        return read(sendAsync(request), response -> {
+            checkResponse(response);
+            return response.readBytes();
+        });
+    }
+
+    public CompletableFuture<JsonElement> putBinaryAsync(String path, byte[] data, String token, Map<String, String> headers) {
+        RestRequest request = createRequest("PUT", path, token, null);
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                request.header(entry.getKey(), entry.getValue());
+            }
+        }
+        if (headers == null || !headers.containsKey("Content-Type")) {
+            request.header("Content-Type", "application/octet-stream");
+        }
+        request.body(data);
+        return read(sendAsync(request), this::handleResponse);
+    }
+
+    public CompletableFuture<String> loginAsync(String userName, String password) {
+        JsonObject body = new JsonObject();
+        body.addProperty("userName", userName);
+        body.addProperty("password", password);
+        RestRequest request = new RestRequest("POST", "/auth/tokens")
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json")
+                .body(toJsonBytes(body));
+        return read(sendAsync(request), response -> {
+            String responseBody = response.readString();
+            if (response.getStatusCode() >= 300) {
+                throw new McpApiException(response.getStatusCode(), responseBody);
+            }
+            JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+            if (!json.has("token"))
+                throw new McpApiException(response.getStatusCode(), "Token not found in login response: " + responseBody);
+            return json.get("token").getAsString();
+        });
+    }
+
+    /**
+     * Build the request on the calling thread (the session of the current tool call is a thread local)
+     * and send it asynchronously
+     */
+    private CompletableFuture<JsonElement> executeAsync(String method, String path, JsonObject body, String token) {
+        RestRequest request = createRequest(method, path, token, "application/json");
+        request.header("Content-Type", "application/json");
+        setRequestBody(request, method, body);
+
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Executing async " + method + " " + path);
+        }
+
+        return read(sendAsync(request), this::handleResponse);
+    }
+
+    /**
+     * Async variant of {@link #send(RestRequest)}, the backoff before a retry doesn't hold a thread
+     * @param request
+     * @return future of the response
+     */
+    private CompletableFuture<RestResponse> sendAsync(RestRequest request) {
+        applyDeadline(request);
+        return sendAsync(request, 0);
+    }
+
+    private CompletableFuture<RestResponse> sendAsync(RestRequest request, int attempt) {
+        if (isExpired(request))
+            return CompletableFuture.failedFuture(deadlineExceeded(request, null));
+        if (!breaker.allowRequest())
+            return CompletableFuture.failedFuture(circuitOpen());
+        return sendAsyncOnce(request).handle((response, error) -> {
+            Throwable cause = unwrap(error);
+            if (error != null && isExpired(request)) {
+                // the tool call ran out of time, that says nothing about the health of the backend
+                breaker.onAbort();
+                return CompletableFuture.<RestResponse>failedFuture(deadlineExceeded(request, cause));
+            }
+            if (error != null && !(cause instanceof IOException)) {
+                // not a backend failure, but a trial call must still report back
+                breaker.onAbort();
+                return CompletableFuture.<RestResponse>failedFuture(cause);
+            }
+            if (error == null && !isUnavailable(response.getStatusCode())) {
+                breaker.onSuccess();
+                return CompletableFuture.completedFuture(response);
+            }
+            breaker.onFailure();
+            long backoff = getRetryBackoff(request, attempt, cause, response);
+            if (backoff < 0) {
+                return error != null ? CompletableFuture.<RestResponse>failedFuture(cause)
+                        : CompletableFuture.completedFuture(response);
+            }
+            discard(response);
+            Executor delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, asyncExecutor);
+            return CompletableFuture.supplyAsync(() -> request, delayed).thenCompose(r -> sendAsync(r, attempt + 1));
+        }).thenCompose(future -> future);
+    }
+
+    private CompletableFuture<RestResponse> sendAsyncOnce(RestRequest request) {
+        RestTransport inProcess = transportTracker != null ? transportTracker.getService() : null;
+        if (inProcess == null)
+            return httpTransport.sendAsync(request, asyncExecutor);
+        return inProcess.sendAsync(request, asyncExecutor).thenCompose(response -> response != null
+                ? CompletableFuture.completedFuture(response)
+                : httpTransport.sendAsync(request, asyncExecutor));
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(RestResponse response) throws Exception;
+    }
+
+    private static <T> CompletableFuture<T> read(CompletableFuture<RestResponse> future, ResponseReader<T> reader) {
+        return future.thenApply(response -> {
+            try {
+                return reader.read(response);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Send a request through the circuit breaker. GET requests failing with a connection error or a gateway or
+     * unavailable response are retried with jittered exponential backoff.
+     * @param request
+     * @return response
+     * @throws Exception
+     */
+    private RestResponse send(RestRequest request) throws Exception {
+        applyDeadline(request);
+        for (int attempt = 0;; attempt++) {
+            if (isExpired(request))
+                throw deadlineExceeded(request, null);
+            if (!breaker.allowRequest())
+                throw circuitOpen();
+            RestResponse response;
+            try {
+                response = sendOnce(request);
+            } catch (IOException e) {
+                if (isExpired(request)) {
+                    // the tool call ran out of time, that says nothing about the health of the backend
+                    breaker.onAbort();
+                    throw deadlineExceeded(request, e);
+                }
+                breaker.onFailure();
+                long backoff = getRetryBackoff(request, attempt, e, null);
+                if (backoff < 0)
+                    throw e;
+                Thread.sleep(backoff);
+                continue;
+            } catch (Exception e) {
+                // not a backend failure, but a trial call must still report back
+                breaker.onAbort();
+                throw e;
+            }
+            if (!isUnavailable(response.getStatusCode())) {
+                breaker.onSuccess();
+                return response;
+            }
+            breaker.onFailure();
+            long backoff = getRetryBackoff(request, attempt, null, response);
+            if (backoff < 0)
+                return response;
+            discard(response);
+            Thread.sleep(backoff);
+        }
+    }
+
+    /**
+     * Give the request the deadline of the current tool call, or the default budget
+     */
+    private void applyDeadline(RestRequest request) {
+        if (request.getDeadline() > 0)
+            return;
+        Long deadline = currentDeadline.get();
+        request.deadline(deadline != null ? deadline : System.currentTimeMillis() + defaultDeadlineMs);
+    }
+
+    private static boolean isExpired(RestRequest request) {
+        return request.getDeadline() > 0 && System.currentTimeMillis() >= request.getDeadline();
+    }
+
+    private McpDeadlineException deadlineExceeded(RestRequest request, Throwable cause) {
+        deadlineExceededCount.incrementAndGet();
+        return new McpDeadlineException("Deadline exceeded, " + request.getMethod() + " " + request.getPath()
+                + " did not complete in time", cause);
+    }
+
+    /**
+     * @param statusCode
+     * @return true for responses of a backend that is down or overloaded
+     */
+    private static boolean isUnavailable(int statusCode) {
+        return statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Only idempotent reads are retried, a write may have been applied before the failure. A retry that can't
+     * start before the deadline isn't attempted.
+     * @return backoff in milliseconds before the next attempt, -1 if the request must not be retried
+     */
+    private long getRetryBackoff(RestRequest request, int attempt, Throwable error, RestResponse response) {
+        if (attempt >= retryMax || !"GET".equals(request.getMethod()))
+            return -1;
+        long max = Math.min(RETRY_MAX_BACKOFF_MS, retryBackoffMs << Math.min(attempt, 16));
+        // half fixed, half random so concurrent callers don't retry in lockstep
+        long backoff = max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1);
+        if (request.getDeadline() > 0 && System.currentTimeMillis() + backoff >= request.getDeadline())
+            return -1;
+        retryCount.incrementAndGet();
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Retrying " + request.getMethod() + " " + request.getPath() + " in " + backoff + " ms after "
+                    + (error != null ? error.toString() : "status " + response.getStatusCode()));
+        }
+        return backoff;
+    }
+
+    private static void discard(RestResponse response) {
+        if (response == null)
+            return;
+        try {
+            response.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private static McpApiException circuitOpen() {
+        return new McpApiException(503, "REST API unavailable, circuit breaker is open");
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException || t instanceof UncheckedIOException)
+                && t.getCause() != null)
+            t = t.getCause();
+        return t;
+    }
+
+    /**
+     * Send a request with the in-process transport if one is registered and accepts the request,
+     * otherwise over HTTP
+     * @param request
+     * @return response
+     * @throws Exception
+     */
+    private RestResponse sendOnce(RestRequest request) throws Exception {
+        if (transportTracker != null) {
+            RestTransport inProcess = transportTracker.getService();
+            if (inProcess != null) {
+                RestResponse response = inProcess.send(request);
+                if (response != null)
+                    return response;
+            }
+        }
+        return httpTransport.send(request);
+    }
+
+    private RestRequest createRequest(String method, String path, String token, String accept) {
         String validToken = getValidToken(token);
-        String url = McpConfig.getBaseUrl() + (path.startsWith("/") ? path : "/" + path);
 
         if (log.isLoggable(Level.FINE)) {
-            log.fine("Creating request for URL: " + url);
+            log.fine("Creating request for path: " + path);
         }
 
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        RestRequest request = new RestRequest(method, path)
                 .header("Accept", accept != null ? accept : "application/json");
 
         if (validToken != null) {
-            builder.header("Authorization", "Bearer " + validToken);
+            request.header("Authorization", "Bearer " + validToken);
         }
 
-        return builder;
+        return request;
     }
 
     private String getValidToken(String token) {
@@ -105,189 +603,231 @@ public class RestApiClient {
         if (sessionId == null) {
             return token;
         }
-        McpServlet.TokenInfo tokenInfo = McpServlet.getTokenInfo(sessionId);
+        McpSession session = McpServlet.getSession(sessionId);
+        McpServlet.TokenInfo tokenInfo = session != null ? session.getTokenInfo() : null;
         if (tokenInfo == null) {
             return token;
         }
-        if (tokenInfo.isExpired()) {
-            String refreshToken = tokenInfo.getRefreshToken();
-            if (refreshToken != null) {
-                try {
-                    if (log.isLoggable(Level.INFO)) {
-                        log.info("Token expired. Refreshing token using refresh_token...");
-                    }
-                    JsonObject body = new JsonObject();
-                    body.addProperty("refresh_token", refreshToken);
+        if (tokenInfo.isExpired() && tokenInfo.getRefreshToken() != null) {
+            McpServlet.TokenInfo refreshed = refreshToken(session, tokenInfo);
+            if (refreshed != null) {
+                return refreshed.getToken();
+            }
+        }
+        return tokenInfo.getToken();
+    }
 
-                    if (tokenInfo.getClientId() != null) {
-                        body.addProperty("clientId", tokenInfo.getClientId());
-                    }
-                    if (tokenInfo.getUserId() != null) {
-                        body.addProperty("userId", tokenInfo.getUserId());
-                    }
+    /**
+     * Refresh the token of a session. At most one refresh per session is in flight, concurrent callers wait for
+     * its result instead of posting their own refresh with the same refresh token.
+     * @param session
+     * @param expired token to refresh
+     * @return refreshed token, or null if the refresh failed
+     */
+    public McpServlet.TokenInfo refreshToken(McpSession session, McpServlet.TokenInfo expired) {
+        CompletableFuture<McpServlet.TokenInfo> refresh = new CompletableFuture<>();
+        CompletableFuture<McpServlet.TokenInfo> inFlight = session.joinTokenRefresh(refresh);
+        if (inFlight == refresh) {
+            try {
+                McpServlet.TokenInfo current = session.getTokenInfo();
+                if (current != null && current != expired && !current.isExpired()) {
+                    // already refreshed by a caller that completed before this one started
+                    refresh.complete(current);
+                } else {
+                    refresh.complete(postRefresh(session.getId(), expired));
+                }
+            } catch (Throwable e) {
+                refresh.complete(null);
+                throw e;
+            } finally {
+                session.endTokenRefresh(refresh);
+            }
+        }
+        try {
+            return inFlight.get(TOKEN_REFRESH_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warning("Timed out waiting for token refresh of session: " + session.getId());
+        } catch (ExecutionException e) {
+            log.log(Level.WARNING, "Failed to refresh token", e.getCause());
+        }
+        return null;
+    }
 
-                    String url = McpConfig.getBaseUrl() + "/auth/refresh";
-                    HttpRequest.Builder builder = HttpRequest.newBuilder()
-                            .uri(URI.create(url))
-                            .header("Accept", "application/json")
-                            .header("Content-Type", "application/json")
-                            .POST(BodyPublishers.ofString(gson.toJson(body)));
-
-                    HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-                    if (response.statusCode() < 300) {
-                        JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
-                        if (json.has("token")) {
-                            String newToken = json.get("token").getAsString();
-                            String newRefreshToken = json.has("refresh_token") ? json.get("refresh_token").getAsString() : refreshToken;
-                            McpServlet.updateToken(sessionId, newToken, newRefreshToken);
-                            if (log.isLoggable(Level.INFO)) {
-                                log.info("Token successfully refreshed.");
-                            }
-                            return newToken;
-                        }
-                    } else {
-                        log.warning("Token refresh request failed with status: " + response.statusCode() + ", body: " + response.body());
+    /**
+     * Post the refresh token to /auth/refresh and store the new token in the session
+     * @param sessionId
+     * @param tokenInfo
+     * @return new token or null if the refresh failed
+     */
+    private McpServlet.TokenInfo postRefresh(String sessionId, McpServlet.TokenInfo tokenInfo) {
+        String refreshToken = tokenInfo.getRefreshToken();
+        try {
+            if (log.isLoggable(Level.INFO)) {
+                log.info("Refreshing token using refresh_token...");
+            }
+            JsonObject body = new JsonObject();
+            body.addProperty("refresh_token", refreshToken);
+
+            if (tokenInfo.getClientId() != null) {
+                body.addProperty("clientId", tokenInfo.getClientId());
+            }
+            if (tokenInfo.getUserId() != null) {
+                body.addProperty("userId", tokenInfo.getUserId());
+            }
+
+            RestRequest request = new RestRequest("POST", "/auth/refresh")
+                    .header("Accept", "application/json")
+                    .header("Content-Type", "application/json")
+                    .body(toJsonBytes(body));
+
+            RestResponse response = send(request);
+            if (response.getStatusCode() < 300) {
+                JsonObject json = parse(response).getAsJsonObject();
+                if (json.has("token")) {
+                    String newToken = json.get("token").getAsString();
+                    String newRefreshToken = json.has("refresh_token") ? json.get("refresh_token").getAsString() : refreshToken;
+                    McpServlet.updateToken(sessionId, newToken, newRefreshToken);
+                    if (log.isLoggable(Level.INFO)) {
+                        log.info("Token successfully refreshed.");
                     }
-                } catch (Exception e) {
-                    log.log(Level.WARNING, "Failed to refresh token", e);
+                    return McpServlet.getTokenInfo(sessionId);
                 }
+            } else {
+                log.warning("Token refresh request failed with status: " + response.getStatusCode() + ", body: " + response.readString());
             }
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Failed to refresh token", e);
         }
-        return tokenInfo.getToken();
+        return null;
     }
 
     private JsonElement execute(String method, String path, JsonObject body, String token) throws Exception {
-        HttpRequest.Builder builder = createBuilder(path, token, "application/json");
-        builder.header("Content-Type", "application/json");
-        setRequestMethod(builder, method, body);
+        RestRequest request = createRequest(method, path, token, "application/json");
+        request.header("Content-Type", "application/json");
+        setRequestBody(request, method, body);
 
         if (log.isLoggable(Level.INFO)) {
             log.info("Executing " + method + " " + path);
         }
 
-        HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-        return handleResponse(response);
+        return handleResponse(send(request));
     }
 
     private String executeRaw(String method, String path, JsonObject body, String token, String accept)
             throws Exception {
-        HttpRequest.Builder builder = createBuilder(path, token, accept);
-        builder.header("Content-Type", "application/json");
-        setRequestMethod(builder, method, body);
+        RestRequest request = createRequest(method, path, token, accept);
+        request.header("Content-Type", "application/json");
+        setRequestBody(request, method, body);
 
         if (log.isLoggable(Level.INFO)) {
             log.info("Executing Raw " + method + " " + path);
         }
 
-        HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        RestResponse response = send(request);
         checkResponse(response);
-        return response.body();
+        return response.readString();
     }
 
     private byte[] executeBinary(String method, String path, JsonObject body, String token, String accept)
             throws Exception {
-        HttpRequest.Builder builder = createBuilder(path, token, accept);
-        builder.header("Content-Type", "application/json");
-        setRequestMethod(builder, method, body);
+        RestRequest request = createRequest(method, path, token, accept);
+        request.header("Content-Type", "application/json");
+        setRequestBody(request, method, body);
 
         if (log.isLoggable(Level.INFO)) {
             log.info("Executing Binary " + method + " " + path);
         }
 
-        HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
-
-        if (response.statusCode() >= 300) {
-            String errorBody = new String(response.body());
-            throw new McpApiException(response.statusCode(), errorBody);
-        }
-        return response.body();
+        RestResponse response = send(request);
+        checkResponse(response);
+        return response.readBytes();
     }
 
     public JsonElement putBinary(String path, byte[] data, String token, Map<String, String> headers)
             throws Exception {
-        // Use createBuilder but we might need to override headers or add them
-        // createBuilder sets Accept if we pass it, but here we might not care about
-        // Accept or it's default
-        HttpRequest.Builder builder = createBuilder(path, token, null);
+        // Accept defaults to application/json, headers may add to or override it
+        RestRequest request = createRequest("PUT", path, token, null);
 
         if (headers != null) {
             for (Map.Entry<String, String> entry : headers.entrySet()) {
-                builder.header(entry.getKey(), entry.getValue());
+                request.header(entry.getKey(), entry.getValue());
             }
         }
 
         if (headers == null || !headers.containsKey("Content-Type")) {
-            builder.header("Content-Type", "application/octet-stream");
+            request.header("Content-Type", "application/octet-stream");
         }
 
-        builder.PUT(BodyPublishers.ofByteArray(data));
+        request.body(data);
 
         if (log.isLoggable(Level.INFO)) {
             log.info("Executing PUT Binary " + path);
         }
 
-        HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-        return handleResponse(response);
+        return handleResponse(send(request));
     }
 
     public String login(String userName, String password) throws Exception {
-        String url = McpConfig.getBaseUrl() + "/auth/tokens";
         JsonObject body = new JsonObject();
         body.addProperty("userName", userName);
         body.addProperty("password", password);
 
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        RestRequest request = new RestRequest("POST", "/auth/tokens")
                 .header("Accept", "application/json")
                 .header("Content-Type", "application/json")
-                .POST(BodyPublishers.ofString(gson.toJson(body)));
+                .body(toJsonBytes(body));
 
         if (log.isLoggable(Level.INFO)) {
             log.info("Logging in user: " + userName);
         }
 
-        HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        RestResponse response = send(request);
+        String responseBody = response.readString();
 
-        if (response.statusCode() >= 300) {
-            throw new McpApiException(response.statusCode(), response.body());
+        if (response.getStatusCode() >= 300) {
+            throw new McpApiException(response.getStatusCode(), responseBody);
         }
 
-        JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+        JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
         if (json.has("token")) {
             return json.get("token").getAsString();
         } else {
-            throw new McpApiException(response.statusCode(), "Token not found in login response: " + response.body());
+            throw new McpApiException(response.getStatusCode(), "Token not found in login response: " + responseBody);
         }
     }
 
-    private void setRequestMethod(HttpRequest.Builder builder, String method, JsonObject body) {
-        if ("POST".equals(method)) {
-            builder.POST(BodyPublishers.ofString(gson.toJson(body != null ? body : new JsonObject())));
-        } else if ("PUT".equals(method)) {
-            builder.PUT(BodyPublishers.ofString(gson.toJson(body != null ? body : new JsonObject())));
-        } else if ("DELETE".equals(method)) {
-            builder.DELETE();
-        } else {
-            builder.GET();
+    private void setRequestBody(RestRequest request, String method, JsonObject body) {
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            request.body(toJsonBytes(body != null ? body : new JsonObject()));
         }
     }
 
-    private void checkResponse(HttpResponse<?> response) throws McpApiException {
-        if (response.statusCode() >= 300) {
-            String bodyStr = "";
-            if (response.body() instanceof String) {
-                bodyStr = (String) response.body();
-            } else if (response.body() instanceof byte[]) {
-                bodyStr = new String((byte[]) response.body());
-            } else {
-                bodyStr = String.valueOf(response.body());
-            }
-            throw new McpApiException(response.statusCode(), bodyStr);
+    private byte[] toJsonBytes(JsonObject body) {
+        return gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void checkResponse(RestResponse response) throws Exception {
+        if (response.getStatusCode() >= 300) {
+            throw new McpApiException(response.getStatusCode(), response.readString());
         }
     }
 
-    private JsonElement handleResponse(HttpResponse<String> response) throws McpApiException {
+    private JsonElement handleResponse(RestResponse response) throws Exception {
         checkResponse(response);
-        return JsonParser.parseString(response.body());
+        return parse(response);
+    }
+
+    /**
+     * Parse a JSON response body straight from the response stream
+     * @param response
+     * @return parsed body
+     * @throws Exception
+     */
+    private JsonElement parse(RestResponse response) throws Exception {
+        try (Reader reader = new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader);
+        }
     }
-}
\ No newline at end of file
+}
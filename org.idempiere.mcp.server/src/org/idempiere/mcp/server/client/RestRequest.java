@@ -0,0 +1,120 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request to the iDempiere REST API, independent of the transport
+ */
+public class RestRequest {
+
+    private final String method;
+    private final String path;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private byte[] body;
+    private long deadline;
+
+    /**
+     * @param method HTTP method (GET, POST, PUT, DELETE)
+     * @param path   path relative to the REST API base URL, e.g. /models/c_order
+     */
+    public RestRequest(String method, String path) {
+        this.method = method;
+        this.path = path.startsWith("/") ? path : "/" + path;
+    }
+
+    /**
+     * Set a request header
+     * @param name
+     * @param value
+     * @return this
+     */
+    public RestRequest header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Set the request body
+     * @param body
+     * @return this
+     */
+    public RestRequest body(byte[] body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * Set the time by which the request must complete
+     * @param deadline epoch milliseconds, 0 for none
+     * @return this
+     */
+    public RestRequest deadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @param name
+     * @return header value or null
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * @return request body or null
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return epoch milliseconds by which the request must complete, 0 for none
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+}
@@ -0,0 +1,67 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Transport used by {@link RestApiClient} to send requests to the iDempiere REST API.
+ * <p>
+ * The default transport is HTTP to the REST endpoint of this server ({@link HttpRestTransport}). An in-process
+ * transport, dispatching requests without the loopback HTTP hop, is registered as an OSGi service of this bundle by
+ * the MCP servlet. An in-process transport may return null to decline a request, which is then sent over HTTP.
+ */
+public interface RestTransport {
+
+    /**
+     * Send a request. A transport doesn't wait for the response past the deadline of the request, it fails with an
+     * IOException instead.
+     * @param request
+     * @return response, or null if this transport can't handle the request
+     * @throws Exception
+     */
+    RestResponse send(RestRequest request) throws Exception;
+
+    /**
+     * Send a request asynchronously. The default implementation runs {@link #send(RestRequest)} on executor.
+     * @param request
+     * @param executor executor for blocking work
+     * @return future of the response, completed with null if this transport can't handle the request
+     */
+    default CompletableFuture<RestResponse> sendAsync(RestRequest request, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(request);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
@@ -41,7 +41,7 @@ public class McpAuthExecutor {
      * @param client
      * @return MCP success/error response
      */
-    public static String create(String id, JsonObject args, String token, String sessionId, RestApiClient client) {
+    public static String create(JsonElement id, JsonObject args, String token, String sessionId, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Create Auth Token", () -> {
             JsonObject body = new JsonObject();
             body.addProperty("userName", args.get("userName").getAsString());
@@ -78,7 +78,7 @@ public class McpAuthExecutor {
      * @param client
      * @return MCP success/error response
      */
-    public static String update(String id, JsonObject args, String token, String sessionId, RestApiClient client) {
+    public static String update(JsonElement id, JsonObject args, String token, String sessionId, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Update Auth Token", () -> {
             JsonObject body = new JsonObject();
             if (args.has("clientId") && !args.get("clientId").isJsonNull()) {
@@ -125,7 +125,7 @@ public class McpAuthExecutor {
      * @param sessionId
      * @return MCP success/error response
      */
-    public static String setToken(String id, JsonObject args, String token, String sessionId) {
+    public static String setToken(JsonElement id, JsonObject args, String token, String sessionId) {
         return McpExecutorUtils.execute(id, "idempiere_auth_set_token", () -> {
             String newToken = args.get("token").getAsString();
             String refreshToken = args.has("refresh_token") && !args.get("refresh_token").isJsonNull() ? args.get("refresh_token").getAsString() : null;
@@ -150,7 +150,7 @@ public class McpAuthExecutor {
      * @param client
      * @return MCP success/error response
      */
-    public static String logout(String id, JsonObject args, String token, String sessionId, RestApiClient client) {
+    public static String logout(JsonElement id, JsonObject args, String token, String sessionId, RestApiClient client) {
         return McpExecutorUtils.execute(id, "idempiere_auth_logout", () -> {
             JsonObject body = new JsonObject();
             body.addProperty("token", token);
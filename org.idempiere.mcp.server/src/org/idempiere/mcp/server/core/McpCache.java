@@ -0,0 +1,245 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+import org.idempiere.mcp.server.config.McpConfig;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Bounded in-memory cache of backend data with time-to-live and least recently used eviction.
+ * <p>
+ * The bound is the sum of the weights of the entries, the weight of an entry is 1 unless a weigher is given, so
+ * a cache can be bounded by number of entries or by size. All caches register themselves so they can be reset
+ * together (idempiere_cache_reset) and reported in the server status.
+ * @param <K> key type
+ * @param <V> value type
+ */
+class McpCache<K, V> {
+
+    private static final List<McpCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final long ttlMs;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    /** access ordered, guarded by this */
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** guarded by this */
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expiredCount;
+    private long revalidationCount;
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long expires;
+
+        private Entry(V value, long weight, long expires) {
+            this.value = value;
+            this.weight = weight;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * @param name      name reported in the status
+     * @param ttlMs     time-to-live of an entry in milliseconds
+     * @param maxWeight maximum total weight of the entries
+     * @param weigher   weight of a value, null to count entries
+     */
+    McpCache(String name, long ttlMs, long maxWeight, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.ttlMs = ttlMs;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        caches.add(this);
+    }
+
+    /**
+     * @param name       name reported in the status
+     * @param ttlMs      time-to-live of an entry in milliseconds
+     * @param maxEntries maximum number of entries
+     */
+    McpCache(String name, long ttlMs, long maxEntries) {
+        this(name, ttlMs, maxEntries, null);
+    }
+
+    /**
+     * @param key
+     * @return cached value or null if not cached or expired
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expires <= System.currentTimeMillis()) {
+            // kept for revalidation, see getExpired
+            expiredCount++;
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * Get an entry past its time-to-live, to revalidate it with the server instead of reading it again
+     * @param key
+     * @return cached value, expired or not, or null if not cached
+     */
+    synchronized V getExpired(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Renew the time-to-live of an entry the server confirmed to be current
+     * @param key
+     */
+    synchronized void revalidated(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            entries.put(key, new Entry<>(entry.value, entry.weight, System.currentTimeMillis() + ttlMs));
+            revalidationCount++;
+        }
+    }
+
+    /**
+     * Cache a value, evicting the least recently used entries to stay within the bound.
+     * A value heavier than the bound is not cached.
+     * @param key
+     * @param value
+     */
+    synchronized void put(K key, V value) {
+        long valueWeight = weigher != null ? weigher.applyAsLong(value) : 1;
+        remove(key);
+        if (valueWeight > maxWeight)
+            return;
+        entries.put(key, new Entry<>(value, valueWeight, System.currentTimeMillis() + ttlMs));
+        weight += valueWeight;
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            weight -= it.next().weight;
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    synchronized void invalidate(K key) {
+        remove(key);
+    }
+
+    /**
+     * @param filter selects the entries to remove by key and value
+     */
+    synchronized void invalidateIf(BiPredicate<K, V> filter) {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = it.next();
+            if (filter.test(entry.getKey(), entry.getValue().value)) {
+                weight -= entry.getValue().weight;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null)
+            weight -= entry.weight;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return size and hit/miss counters of the cache
+     */
+    synchronized JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("entries", entries.size());
+        stats.addProperty("weight", weight);
+        stats.addProperty("maxWeight", maxWeight);
+        stats.addProperty("ttlMs", ttlMs);
+        stats.addProperty("hits", hitCount);
+        stats.addProperty("misses", missCount);
+        stats.addProperty("evictions", evictionCount);
+        stats.addProperty("expired", expiredCount);
+        stats.addProperty("revalidated", revalidationCount);
+        return stats;
+    }
+
+    /**
+     * @param key          environment variable or system property
+     * @param defaultValue
+     * @return positive configured value or defaultValue
+     */
+    static long getLongConfig(String key, long defaultValue) {
+        try {
+            long value = Long.parseLong(McpConfig.get(key, Long.toString(defaultValue)).trim());
+            return value > 0 ? value : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Remove the entries of all caches
+     */
+    static void invalidateAllCaches() {
+        for (McpCache<?, ?> cache : caches)
+            cache.invalidateAll();
+    }
+
+    /**
+     * @return statistics of all caches by name
+     */
+    static JsonObject getAllStats() {
+        JsonObject stats = new JsonObject();
+        for (McpCache<?, ?> cache : caches)
+            stats.add(cache.getName(), cache.getStats());
+        return stats;
+    }
+}
@@ -25,47 +25,407 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
 import org.compiere.util.CLogger;
 import org.idempiere.mcp.server.client.McpApiException;
+import org.idempiere.mcp.server.client.RestApiClient;
+import org.idempiere.mcp.server.client.RestResponse;
+import org.idempiere.mcp.server.web.McpServlet;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
 
 public class McpExecutorUtils {
 
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    // end of a tool result with one text item, from the closing quote of the text
+    private static final String TEXT_CONTENT_SUFFIX = "\"}]}}";
+
     private static final Pattern NONLATIN = Pattern.compile("[^\\w_-]");
     private static final Pattern SEPARATORS = Pattern.compile("[\\s\\p{Punct}&&[^-]&&[^_]]");
 
-    public static String execute(String id, String opName, Callable<String> action) {
+    public static String execute(JsonElement id, String opName, Callable<String> action) {
         try {
             return action.call();
-        } catch (McpApiException e) {
-        	CLogger.getCLogger(McpExecutorUtils.class).log(Level.SEVERE, e.getMessage(), e);
-            // Use tool error format (isError: true) instead of JSON-RPC error for tool execution failures
-            return wrapToolError(id, opName + " API Error: " + e.getMessage());
         } catch (Exception e) {
-        	CLogger.getCLogger(McpExecutorUtils.class).log(Level.SEVERE, e.getMessage(), e);
-            // Use tool error format (isError: true) instead of JSON-RPC error for tool execution failures
-            return wrapToolError(id, opName + " Error: " + e.getMessage());
+            return toToolError(id, opName, e);
+        }
+    }
+
+    /**
+     * Async variant of {@link #execute(JsonElement, String, Callable)} for tools composing the async API of
+     * RestApiClient. Failures of the action or of the returned future are mapped to a tool error.
+     * @param id
+     * @param opName
+     * @param action returns the future of the tool result
+     * @return future of the tool result, never completed exceptionally
+     */
+    public static CompletableFuture<String> executeAsync(JsonElement id, String opName, Callable<CompletableFuture<String>> action) {
+        CompletableFuture<String> future;
+        try {
+            future = action.call();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.exceptionally(t -> toToolError(id, opName, unwrap(t)));
+    }
+
+    /**
+     * Wait for the result of {@link #executeAsync(JsonElement, String, Callable)}, for tool handlers that must
+     * return synchronously.
+     * @param id
+     * @param opName
+     * @param action
+     * @return tool result
+     */
+    public static String await(JsonElement id, String opName, Callable<CompletableFuture<String>> action) {
+        return executeAsync(id, opName, action).join();
+    }
+
+    /**
+     * Combine futures into one future of all results, in order
+     * @param <T>
+     * @param futures
+     * @return future completed when all futures complete, or exceptionally when any of them fails
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures)
+                results.add(future.join());
+            return results;
+        });
+    }
+
+    /**
+     * Map items to futures with at most maxConcurrency of them pending at a time, the next item is started when a
+     * pending one completes.
+     * @param <T>
+     * @param <R>
+     * @param items
+     * @param maxConcurrency
+     * @param mapper
+     * @return future of all results in the order of items, completed exceptionally with the first failure
+     */
+    public static <T, R> CompletableFuture<List<R>> mapBounded(List<T> items, int maxConcurrency,
+            Function<T, CompletableFuture<R>> mapper) {
+        CompletableFuture<List<R>> result = new CompletableFuture<>();
+        Object[] results = new Object[items.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        int lanes = Math.min(Math.max(maxConcurrency, 1), items.size());
+        if (lanes == 0)
+            result.complete(new ArrayList<>());
+        for (int i = 0; i < lanes; i++)
+            runLane(items, mapper, results, next, completed, result);
+        return result;
+    }
+
+    private static <T, R> void runLane(List<T> items, Function<T, CompletableFuture<R>> mapper, Object[] results,
+            AtomicInteger next, AtomicInteger completed, CompletableFuture<List<R>> result) {
+        // loop over futures that are already done (e.g. cache hits) instead of recursing through whenComplete
+        int index;
+        while (!result.isDone() && (index = next.getAndIncrement()) < items.size()) {
+            CompletableFuture<R> future;
+            try {
+                future = mapper.apply(items.get(index));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            int i = index;
+            if (!future.isDone()) {
+                future.whenComplete((value, t) -> {
+                    if (complete(results, i, value, t, completed, result))
+                        runLane(items, mapper, results, next, completed, result);
+                });
+                return;
+            }
+            R value = null;
+            Throwable error = null;
+            try {
+                value = future.join();
+            } catch (Throwable t) {
+                error = t;
+            }
+            if (!complete(results, i, value, error, completed, result))
+                return;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> boolean complete(Object[] results, int index, R value, Throwable t, AtomicInteger completed,
+            CompletableFuture<List<R>> result) {
+        if (t != null) {
+            result.completeExceptionally(unwrap(t));
+            return false;
+        }
+        results[index] = value;
+        if (completed.incrementAndGet() == results.length) {
+            List<R> list = new ArrayList<>(results.length);
+            for (Object r : results)
+                list.add((R) r);
+            result.complete(list);
+        }
+        return true;
+    }
+
+    /**
+     * Streaming variant of {@link #execute(JsonElement, String, Callable)}: the JSON body of the REST response is
+     * copied into the tool result as it is read, without building a String or a JSON tree of it. Failures of the
+     * action are written as a tool error; once the body is being copied, failures are thrown as nothing can be
+     * taken back from out, the caller must abort the response.
+     * @param id
+     * @param opName
+     * @param out    output of the JSON-RPC response
+     * @param action sends the REST request and returns the successful response
+     * @throws IOException
+     */
+    public static void executeStreaming(JsonElement id, String opName, OutputStream out, Callable<RestResponse> action)
+            throws IOException {
+        executeStreaming(id, opName, null, out, action);
+    }
+
+    /**
+     * {@link #executeStreaming(JsonElement, String, OutputStream, Callable)} with the records of the result projected
+     * to a set of fields.
+     * @param id
+     * @param opName
+     * @param fields lower case names of the record fields to keep, null to keep all
+     * @param out    output of the JSON-RPC response
+     * @param action sends the REST request and returns the successful response
+     * @throws IOException
+     * @see McpResultEncoder#parseFields(JsonObject)
+     */
+    public static void executeStreaming(JsonElement id, String opName, Set<String> fields, OutputStream out,
+            Callable<RestResponse> action) throws IOException {
+        RestResponse response;
+        try {
+            response = action.call();
+        } catch (Exception e) {
+            out.write(toToolError(id, opName, e).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        try (RestResponse body = response; Reader reader = new InputStreamReader(body.getBody(), StandardCharsets.UTF_8)) {
+            writeJsonContent(id, reader, fields, out);
+        }
+    }
+
+    /**
+     * Write the response of {@link #wrapJsonContent(JsonElement, JsonElement, Set)} for a JSON document read from a
+     * stream, encoding it token by token into the text item.
+     * @param id
+     * @param json   JSON document
+     * @param fields lower case names of the record fields to keep, null to keep all
+     * @param out    output of the JSON-RPC response, not closed
+     * @throws IOException
+     */
+    public static void writeJsonContent(JsonElement id, Reader json, Set<String> fields, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(getTextContentPrefix(id));
+        new McpResultEncoder(fields).encode(new JsonReader(json), writer);
+        writer.write(TEXT_CONTENT_SUFFIX);
+        writer.flush();
+    }
+
+    /**
+     * @param id
+     * @return start of a tool result with one text item, up to the opening quote of the text
+     */
+    private static String getTextContentPrefix(JsonElement id) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + McpServiceImpl.toResponseId(id)
+                + ",\"result\":{\"content\":[{\"type\":\"text\",\"text\":\"";
+    }
+
+    /**
+     * Binary variant of {@link #executeStreaming(JsonElement, String, OutputStream, Callable)}: the REST response
+     * body is Base64 encoded into the tool result as it is read.
+     * @param id
+     * @param opName
+     * @param mimeType type of the content if the response has no Content-Type, may be null
+     * @param out      output of the JSON-RPC response
+     * @param action   sends the REST request and returns the successful response
+     * @throws IOException
+     */
+    public static void executeBinaryStreaming(JsonElement id, String opName, String mimeType, OutputStream out,
+            Callable<RestResponse> action) throws IOException {
+        RestResponse response;
+        try {
+            response = action.call();
+        } catch (Exception e) {
+            out.write(toToolError(id, opName, e).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String contentType = response.getHeader("Content-Type");
+        try (RestResponse body = response) {
+            writeBinaryContent(id, body.getBody(), contentType != null && !contentType.isBlank() ? contentType.trim()
+                    : mimeType, out);
+        }
+    }
+
+    /**
+     * Write the response of {@link #wrapBinaryContent(JsonElement, byte[], String)} for binary data read from a
+     * stream, without holding the data or its Base64 text in memory.
+     * @param id
+     * @param data     binary data, not closed
+     * @param mimeType null for application/octet-stream
+     * @param out      output of the JSON-RPC response, not closed
+     * @throws IOException
+     */
+    public static void writeBinaryContent(JsonElement id, InputStream data, String mimeType, OutputStream out)
+            throws IOException {
+        if (mimeType == null || mimeType.isBlank())
+            mimeType = "application/octet-stream";
+        String type = new JsonPrimitive(mimeType).toString();
+        String prefix = "{\"jsonrpc\":\"2.0\",\"id\":" + McpServiceImpl.toResponseId(id) + ",\"result\":{\"content\":[";
+        String suffix;
+        if (mimeType.startsWith("image/")) {
+            prefix += "{\"type\":\"image\",\"data\":\"";
+            suffix = "\",\"mimeType\":" + type + "}]}}";
+        } else {
+            prefix += "{\"type\":\"resource\",\"resource\":{\"uri\":" + new JsonPrimitive("data:" + mimeType + ";base64,embedded")
+                    + ",\"mimeType\":" + type + ",\"blob\":\"";
+            suffix = "\"}}]}}";
+        }
+        out.write(prefix.getBytes(StandardCharsets.UTF_8));
+        // Base64 text needs no JSON escaping, closing the encoder writes the padding but must not close out
+        try (OutputStream base64 = Base64.getEncoder().wrap(new NonClosingOutputStream(out))) {
+            data.transferTo(base64);
+        }
+        out.write(suffix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Output stream that ignores close
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Scope of cached dictionary data, the tenant, role and language of the token
+     * @param token
+     * @return cache key prefix, null if the token has no role claim and must not share cached data
+     */
+    static String getCacheScope(String token) {
+        if (token == null)
+            return null;
+        McpServlet.TokenInfo info = McpServlet.getTokenInfo(McpServlet.getCurrentSessionId());
+        if (info == null || !token.equals(info.getToken()))
+            info = new McpServlet.TokenInfo(token, null);
+        if (info.getRoleId() == null)
+            return null;
+        return info.getClientId() + "/" + info.getRoleId() + "/" + info.getLanguage();
+    }
+
+    /**
+     * GET a JSON resource through a cache keyed by path and the cache scope of the token. Tokens without a role
+     * claim always read from the server.
+     * @param cache
+     * @param client
+     * @param path
+     * @param token
+     * @return response, shared with the cache and must not be modified
+     * @throws Exception
+     */
+    static JsonElement getCached(McpCache<String, JsonElement> cache, RestApiClient client, String path, String token)
+            throws Exception {
+        String scope = getCacheScope(token);
+        if (scope == null)
+            return client.get(path, token);
+        String key = path.toLowerCase(Locale.ENGLISH) + "|" + scope;
+        JsonElement response = cache.get(key);
+        if (response == null) {
+            response = client.get(path, token);
+            cache.put(key, response);
         }
+        return response;
+    }
+
+    /**
+     * Async variant of {@link #getCached(McpCache, RestApiClient, String, String)}, must be called on the thread
+     * of the tool call
+     * @param cache
+     * @param client
+     * @param path
+     * @param token
+     * @return future of the response, shared with the cache and must not be modified
+     */
+    static CompletableFuture<JsonElement> getCachedAsync(McpCache<String, JsonElement> cache, RestApiClient client,
+            String path, String token) {
+        String scope = getCacheScope(token);
+        if (scope == null)
+            return client.getAsync(path, token);
+        String key = path.toLowerCase(Locale.ENGLISH) + "|" + scope;
+        JsonElement response = cache.get(key);
+        if (response != null)
+            return CompletableFuture.completedFuture(response);
+        return client.getAsync(path, token).thenApply(json -> {
+            cache.put(key, json);
+            return json;
+        });
+    }
+
+    static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null)
+            t = t.getCause();
+        return t;
+    }
+
+    private static String toToolError(JsonElement id, String opName, Throwable e) {
+        CLogger.getCLogger(McpExecutorUtils.class).log(Level.SEVERE, e.getMessage(), e);
+        // Use tool error format (isError: true) instead of JSON-RPC error for tool execution failures
+        if (e instanceof McpApiException)
+            return wrapToolError(id, opName + " API Error: " + e.getMessage());
+        return wrapToolError(id, opName + " Error: " + e.getMessage());
     }
 
     /**
      * Create a tool error response with isError flag as per MCP spec.
      * Tool errors should return a successful result with isError=true, not a JSON-RPC error.
      */
-    public static String wrapToolError(String id, String errorMessage) {
+    public static String wrapToolError(JsonElement id, String errorMessage) {
         JsonObject item = new JsonObject();
         item.addProperty("type", "text");
         item.addProperty("text", errorMessage);
@@ -78,19 +438,31 @@ public class McpExecutorUtils {
         return McpServiceImpl.createSuccess(id, result);
     }
 
-    public static String wrapJsonContent(String id, JsonElement json) {
-        JsonObject item = new JsonObject();
-        item.addProperty("type", "text");
-        item.addProperty("text", gson.toJson(json)); // Valid JSON string inside text
+    public static String wrapJsonContent(JsonElement id, JsonElement json) {
+        return wrapJsonContent(id, json, null);
+    }
 
-        JsonArray content = new JsonArray();
-        content.add(item);
-        JsonObject result = new JsonObject();
-        result.add("content", content);
-        return McpServiceImpl.createSuccess(id, result);
+    /**
+     * Create a tool result with json encoded by {@link McpResultEncoder} as its text
+     * @param id
+     * @param json
+     * @param fields lower case names of the record fields to keep, null to keep all
+     * @return JSON-RPC response
+     */
+    public static String wrapJsonContent(JsonElement id, JsonElement json, Set<String> fields) {
+        StringWriter writer = new StringWriter();
+        writer.write(getTextContentPrefix(id));
+        try {
+            new McpResultEncoder(fields).encode(json, writer);
+        } catch (IOException e) {
+            // not thrown by an in-memory document
+            throw new IllegalStateException(e);
+        }
+        writer.write(TEXT_CONTENT_SUFFIX);
+        return writer.toString();
     }
 
-    public static String wrapBinaryContent(String id, byte[] data, String mimeType) {
+    public static String wrapBinaryContent(JsonElement id, byte[] data, String mimeType) {
         JsonObject item = new JsonObject();
         // Check if it's an image type - use ImageContent format
         if (mimeType != null && mimeType.startsWith("image/")) {
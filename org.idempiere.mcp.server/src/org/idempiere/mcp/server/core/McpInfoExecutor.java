@@ -25,6 +25,8 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -35,7 +37,7 @@ import com.google.gson.JsonObject;
 
 public class McpInfoExecutor {
 
-    public static String list_info_windows(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_info_windows(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String filter = args.has("filter") ? args.get("filter").getAsString() : "";
             String path = "/infos"
@@ -47,36 +49,45 @@ public class McpInfoExecutor {
         }
     }
 
-    public static String get_info_window_data(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_info_window_data(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
-            String infoSlug = McpExecutorUtils.slugify(args.get("infoSlug").getAsString());
-            String parameters = args.has("parameters") ? args.get("parameters").getAsString() : "";
-            String whereClause = args.has("where_clause") ? args.get("where_clause").getAsString() : "";
-            String orderBy = args.has("order_by") ? args.get("order_by").getAsString() : "";
-            int pageNo = args.has("page_no") ? args.get("page_no").getAsInt() : 0;
+            JsonElement response = client.get(infoWindowDataPath(args), token);
+            return McpExecutorUtils.wrapJsonContent(id, response, McpResultEncoder.parseFields(args));
+        } catch (Exception e) {
+            return McpExecutorUtils.wrapToolError(id, "Get Info Window Data Error: " + e.getMessage());
+        }
+    }
+
+    public static void get_info_window_data(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeStreaming(id, "Get Info Window Data", McpResultEncoder.parseFields(args), out,
+                () -> client.getStream(infoWindowDataPath(args), token));
+    }
 
-            StringBuilder sb = new StringBuilder("/infos/").append(URLEncoder.encode(infoSlug, StandardCharsets.UTF_8))
-                    .append("?");
-            sb.append("$page_no=").append(pageNo);
+    private static String infoWindowDataPath(JsonObject args) {
+        String infoSlug = McpExecutorUtils.slugify(args.get("infoSlug").getAsString());
+        String parameters = args.has("parameters") ? args.get("parameters").getAsString() : "";
+        String whereClause = args.has("where_clause") ? args.get("where_clause").getAsString() : "";
+        String orderBy = args.has("order_by") ? args.get("order_by").getAsString() : "";
+        int pageNo = args.has("page_no") ? args.get("page_no").getAsInt() : 0;
 
-            if (!parameters.isEmpty()) {
-                sb.append("&$parameters=").append(URLEncoder.encode(parameters, StandardCharsets.UTF_8));
-            }
-            if (!whereClause.isEmpty()) {
-                sb.append("&$where_clause=").append(URLEncoder.encode(whereClause, StandardCharsets.UTF_8));
-            }
-            if (!orderBy.isEmpty()) {
-                sb.append("&$order_by=").append(URLEncoder.encode(orderBy, StandardCharsets.UTF_8));
-            }
+        StringBuilder sb = new StringBuilder("/infos/").append(URLEncoder.encode(infoSlug, StandardCharsets.UTF_8))
+                .append("?");
+        sb.append("$page_no=").append(pageNo);
 
-            JsonElement response = client.get(sb.toString(), token);
-            return McpExecutorUtils.wrapJsonContent(id, response);
-        } catch (Exception e) {
-            return McpExecutorUtils.wrapToolError(id, "Get Info Window Data Error: " + e.getMessage());
+        if (!parameters.isEmpty()) {
+            sb.append("&$parameters=").append(URLEncoder.encode(parameters, StandardCharsets.UTF_8));
+        }
+        if (!whereClause.isEmpty()) {
+            sb.append("&$where_clause=").append(URLEncoder.encode(whereClause, StandardCharsets.UTF_8));
+        }
+        if (!orderBy.isEmpty()) {
+            sb.append("&$order_by=").append(URLEncoder.encode(orderBy, StandardCharsets.UTF_8));
         }
+        return sb.toString();
     }
 
-    public static String get_info_window_columns(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_info_window_columns(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String infoSlug = McpExecutorUtils.slugify(args.get("infoSlug").getAsString());
             String path = "/infos/" + URLEncoder.encode(infoSlug, StandardCharsets.UTF_8) + "/columns";
@@ -87,7 +98,7 @@ public class McpInfoExecutor {
         }
     }
 
-    public static String get_info_window_processes(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_info_window_processes(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String infoSlug = McpExecutorUtils.slugify(args.get("infoSlug").getAsString());
             String path = "/infos/" + URLEncoder.encode(infoSlug, StandardCharsets.UTF_8) + "/processes";
@@ -98,7 +109,7 @@ public class McpInfoExecutor {
         }
     }
 
-    public static String get_info_window_related_infos(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_info_window_related_infos(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String infoSlug = McpExecutorUtils.slugify(args.get("infoSlug").getAsString());
             String path = "/infos/" + URLEncoder.encode(infoSlug, StandardCharsets.UTF_8) + "/relateds";
@@ -25,12 +25,20 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.idempiere.mcp.server.client.RestApiClient;
 
@@ -39,20 +47,71 @@ import com.google.gson.JsonObject;
 
 public class McpMiscExecutor {
 
+    private static final String ENV_REFERENCE_CACHE_TTL_MS = "MCP_REFERENCE_CACHE_TTL_MS";
+    private static final String ENV_REFERENCE_CACHE_MAX_ENTRIES = "MCP_REFERENCE_CACHE_MAX_ENTRIES";
+    private static final long DEFAULT_REFERENCE_CACHE_TTL_MS = 10 * 60 * 1000;
+    private static final long DEFAULT_REFERENCE_CACHE_MAX_ENTRIES = 1000;
+    // limits of the bulk get_reference, ids per call and references read at a time
+    static final int MAX_REFERENCE_IDS = 100;
+    private static final int REFERENCE_CONCURRENCY = 8;
+
+    // reference definitions with their list values by path and tenant/role/language
+    private static final McpCache<String, JsonElement> referenceCache = new McpCache<>("reference",
+            McpCache.getLongConfig(ENV_REFERENCE_CACHE_TTL_MS, DEFAULT_REFERENCE_CACHE_TTL_MS),
+            McpCache.getLongConfig(ENV_REFERENCE_CACHE_MAX_ENTRIES, DEFAULT_REFERENCE_CACHE_MAX_ENTRIES));
+
     // --- References ---
 
-    public static String get_reference(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_reference(JsonElement id, JsonObject args, String token, RestApiClient client) {
+        if (args.has("ids") && !args.get("ids").isJsonNull())
+            return get_references(id, args, token, client);
         return McpExecutorUtils.execute(id, "Get Reference", () -> {
             String refId = args.get("id").getAsString();
-            String path = "/reference/" + URLEncoder.encode(refId, StandardCharsets.UTF_8);
-            JsonElement response = client.get(path, token);
+            JsonElement response = McpExecutorUtils.getCached(referenceCache, client, referencePath(refId), token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
+    /**
+     * Bulk form of get_reference, up to {@link #MAX_REFERENCE_IDS} references are read with at most
+     * {@link #REFERENCE_CONCURRENCY} requests in flight and returned by requested id. A reference that can't be read
+     * gets an error entry instead of failing the whole call.
+     */
+    private static String get_references(JsonElement id, JsonObject args, String token, RestApiClient client) {
+        return McpExecutorUtils.await(id, "Get References", () -> {
+            Set<String> refIds = new LinkedHashSet<>();
+            for (String refId : args.get("ids").getAsString().split(",")) {
+                if (!refId.trim().isEmpty())
+                    refIds.add(refId.trim());
+            }
+            if (refIds.size() > MAX_REFERENCE_IDS)
+                throw new IllegalArgumentException("Too many ids: " + refIds.size() + ", at most " + MAX_REFERENCE_IDS
+                        + " references can be read in one call");
+            Function<String, CompletableFuture<JsonElement>> read = refId -> McpExecutorUtils
+                    .getCachedAsync(referenceCache, client, referencePath(refId), token)
+                    .exceptionally(t -> {
+                        JsonObject error = new JsonObject();
+                        error.addProperty("error", McpExecutorUtils.unwrap(t).getMessage());
+                        return error;
+                    });
+            List<String> ids = new ArrayList<>(refIds);
+            return McpExecutorUtils.mapBounded(ids, REFERENCE_CONCURRENCY, read).thenApply(responses -> {
+                JsonObject result = new JsonObject();
+                int i = 0;
+                for (String refId : refIds)
+                    result.add(refId, responses.get(i++));
+                return McpExecutorUtils.wrapJsonContent(id, result);
+            });
+        });
+    }
+
+    private static String referencePath(String refId) {
+        return "/reference/" + URLEncoder.encode(refId, StandardCharsets.UTF_8);
+    }
+
     // --- Caches ---
 
-    public static String list_caches(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_caches(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "List Caches", () -> {
             String tableName = args.has("table_name") ? args.get("table_name").getAsString() : "";
             String name = args.has("name") ? args.get("name").getAsString() : "";
@@ -72,7 +131,7 @@ public class McpMiscExecutor {
         });
     }
 
-    public static String reset_cache(String id, JsonObject args, String token, RestApiClient client) {
+    public static String reset_cache(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Reset Cache", () -> {
             String path = "/caches";
             if (args != null && args.has("record_id")) {
@@ -80,20 +139,22 @@ public class McpMiscExecutor {
                 path += "?record_id=" + recordId;
             }
             JsonElement response = client.delete(path, token);
+            // dictionary data cached by this server may be stale as well
+            McpCache.invalidateAllCaches();
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
     // --- Nodes ---
 
-    public static String list_nodes(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_nodes(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "List Nodes", () -> {
             JsonElement response = client.get("/nodes", token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String get_node(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_node(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String nodeId = args.get("id").getAsString();
             String path = "/nodes/" + URLEncoder.encode(nodeId, StandardCharsets.UTF_8);
@@ -104,7 +165,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_node_logs(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_node_logs(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String nodeId = args.get("id").getAsString();
             String path = "/nodes/" + URLEncoder.encode(nodeId, StandardCharsets.UTF_8) + "/logs";
@@ -115,7 +176,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String delete_node_logs(String id, JsonObject args, String token, RestApiClient client) {
+    public static String delete_node_logs(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String nodeId = args.get("id").getAsString();
             String path = "/nodes/" + URLEncoder.encode(nodeId, StandardCharsets.UTF_8) + "/logs";
@@ -126,23 +187,31 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_node_log_file(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_node_log_file(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
-            String nodeId = args.get("id").getAsString();
-            String fileName = args.get("fileName").getAsString();
-            String path = "/nodes/" + URLEncoder.encode(nodeId, StandardCharsets.UTF_8) + "/logs/"
-                    + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
-
             // Check if user wants base64 json or raw binary, defaulting to binary stream
             // for now as per other file tools
-            byte[] response = client.getBinary(path, token, "application/octet-stream");
+            byte[] response = client.getBinary(nodeLogFilePath(args), token, "application/octet-stream");
             return McpExecutorUtils.wrapBinaryContent(id, response, "application/octet-stream");
         } catch (Exception e) {
             return McpExecutorUtils.wrapToolError(id, "Get Node Log File Error: " + e.getMessage());
         }
     }
 
-    public static String rotate_node_log(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_node_log_file(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeBinaryStreaming(id, "Get Node Log File", "application/octet-stream", out,
+                () -> client.getStream(nodeLogFilePath(args), token, "application/octet-stream"));
+    }
+
+    private static String nodeLogFilePath(JsonObject args) {
+        String nodeId = args.get("id").getAsString();
+        String fileName = args.get("fileName").getAsString();
+        return "/nodes/" + URLEncoder.encode(nodeId, StandardCharsets.UTF_8) + "/logs/"
+                + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+    }
+
+    public static String rotate_node_log(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String nodeId = args.get("id").getAsString();
             String path = "/nodes/" + URLEncoder.encode(nodeId, StandardCharsets.UTF_8) + "/logs/rotate";
@@ -155,7 +224,7 @@ public class McpMiscExecutor {
 
     // --- Status Lines ---
 
-    public static String list_status_lines(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_status_lines(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String filter = args.has("filter") ? args.get("filter").getAsString() : "";
             boolean withMessages = args.has("with_messages") && args.get("with_messages").getAsBoolean();
@@ -175,7 +244,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_status_line(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_status_line(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String statusLineId = args.get("id").getAsString();
             String path = "/statuslines/" + URLEncoder.encode(statusLineId, StandardCharsets.UTF_8);
@@ -188,7 +257,7 @@ public class McpMiscExecutor {
 
     // --- Charts ---
 
-    public static String get_charts_data(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_charts_data(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String filter = args.has("filter") ? args.get("filter").getAsString() : "";
             String path = "/charts/data"
@@ -200,31 +269,14 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_chart(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_chart(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
-            String chartId = args.get("id").getAsString();
-            StringBuilder sb = new StringBuilder("/charts/").append(URLEncoder.encode(chartId, StandardCharsets.UTF_8));
-
-            boolean first = true;
-            if (args.has("width")) {
-                sb.append("?width=").append(args.get("width").getAsInt());
-                first = false;
-            }
-            if (args.has("height")) {
-                sb.append(first ? "?" : "&").append("height=").append(args.get("height").getAsInt());
-                first = false;
-            }
-            if (args.has("json") && !args.get("json").getAsString().isEmpty()) {
-                sb.append(first ? "?" : "&").append("json=")
-                        .append(URLEncoder.encode(args.get("json").getAsString(), StandardCharsets.UTF_8));
-            }
-
             // Check if asking for JSON or Image
-            if (args.has("json") && !args.get("json").getAsString().isEmpty()) {
-                JsonElement response = client.get(sb.toString(), token);
+            if (isJsonRequested(args)) {
+                JsonElement response = client.get(chartPath(args), token);
                 return McpExecutorUtils.wrapJsonContent(id, response);
             } else {
-                byte[] response = client.getBinary(sb.toString(), token, "*/*");
+                byte[] response = client.getBinary(chartPath(args), token, "*/*");
                 return McpExecutorUtils.wrapBinaryContent(id, response, "*/*");
             }
         } catch (Exception e) {
@@ -232,7 +284,41 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_chart_data(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_chart(JsonElement id, JsonObject args, String token, RestApiClient client, OutputStream out)
+            throws IOException {
+        if (isJsonRequested(args)) {
+            McpExecutorUtils.executeStreaming(id, "Get Chart", out, () -> client.getStream(chartPath(args), token));
+        } else {
+            McpExecutorUtils.executeBinaryStreaming(id, "Get Chart", "*/*", out,
+                    () -> client.getStream(chartPath(args), token, "*/*"));
+        }
+    }
+
+    private static boolean isJsonRequested(JsonObject args) {
+        return args.has("json") && !args.get("json").getAsString().isEmpty();
+    }
+
+    private static String chartPath(JsonObject args) {
+        String chartId = args.get("id").getAsString();
+        StringBuilder sb = new StringBuilder("/charts/").append(URLEncoder.encode(chartId, StandardCharsets.UTF_8));
+
+        boolean first = true;
+        if (args.has("width")) {
+            sb.append("?width=").append(args.get("width").getAsInt());
+            first = false;
+        }
+        if (args.has("height")) {
+            sb.append(first ? "?" : "&").append("height=").append(args.get("height").getAsInt());
+            first = false;
+        }
+        if (isJsonRequested(args)) {
+            sb.append(first ? "?" : "&").append("json=")
+                    .append(URLEncoder.encode(args.get("json").getAsString(), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    public static String get_chart_data(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String chartId = args.get("id").getAsString();
             String path = "/charts/" + URLEncoder.encode(chartId, StandardCharsets.UTF_8) + "/data";
@@ -245,7 +331,7 @@ public class McpMiscExecutor {
 
     // --- MenuTree ---
 
-    public static String get_menu_tree(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_menu_tree(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String menuId = args.get("id").getAsString();
             String path = "/menutree/" + URLEncoder.encode(menuId, StandardCharsets.UTF_8);
@@ -258,7 +344,7 @@ public class McpMiscExecutor {
 
     // --- Uploads ---
 
-    public static String initiate_upload(String id, JsonObject args, String token, RestApiClient client) {
+    public static String initiate_upload(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             JsonObject data = args.get("data").getAsJsonObject();
             JsonElement response = client.post("/uploads", data, token);
@@ -268,7 +354,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String list_pending_uploads(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_pending_uploads(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             JsonElement response = client.get("/uploads", token);
             return McpExecutorUtils.wrapJsonContent(id, response);
@@ -277,7 +363,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String upload_chunk(String id, JsonObject args, String token, RestApiClient client) {
+    public static String upload_chunk(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String uploadId = args.get("uploadId").getAsString();
             int chunkOrder = args.get("chunkOrder").getAsInt();
@@ -312,7 +398,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_upload_status(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_upload_status(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String uploadId = args.get("uploadId").getAsString();
             String path = "/uploads/" + URLEncoder.encode(uploadId, StandardCharsets.UTF_8);
@@ -326,7 +412,7 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String cancel_upload(String id, JsonObject args, String token, RestApiClient client) {
+    public static String cancel_upload(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String uploadId = args.get("uploadId").getAsString();
             String path = "/uploads/" + URLEncoder.encode(uploadId, StandardCharsets.UTF_8);
@@ -337,16 +423,13 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String get_uploaded_file(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_uploaded_file(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
-            String uploadId = args.get("uploadId").getAsString();
-            String path = "/uploads/" + URLEncoder.encode(uploadId, StandardCharsets.UTF_8) + "/file";
-            if (args.has("json") && !args.get("json").getAsString().isEmpty()) {
-                path += "?json=" + URLEncoder.encode(args.get("json").getAsString(), StandardCharsets.UTF_8);
-                JsonElement response = client.get(path, token);
+            if (isJsonRequested(args)) {
+                JsonElement response = client.get(uploadedFilePath(args), token);
                 return McpExecutorUtils.wrapJsonContent(id, response);
             } else {
-                byte[] response = client.getBinary(path, token, "application/octet-stream");
+                byte[] response = client.getBinary(uploadedFilePath(args), token, "application/octet-stream");
                 return McpExecutorUtils.wrapBinaryContent(id, response, "application/octet-stream");
             }
         } catch (Exception e) {
@@ -354,7 +437,27 @@ public class McpMiscExecutor {
         }
     }
 
-    public static String copy_uploaded_file(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_uploaded_file(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        if (isJsonRequested(args)) {
+            McpExecutorUtils.executeStreaming(id, "Get Uploaded File", out,
+                    () -> client.getStream(uploadedFilePath(args), token));
+        } else {
+            McpExecutorUtils.executeBinaryStreaming(id, "Get Uploaded File", "application/octet-stream", out,
+                    () -> client.getStream(uploadedFilePath(args), token, "application/octet-stream"));
+        }
+    }
+
+    private static String uploadedFilePath(JsonObject args) {
+        String uploadId = args.get("uploadId").getAsString();
+        String path = "/uploads/" + URLEncoder.encode(uploadId, StandardCharsets.UTF_8) + "/file";
+        if (isJsonRequested(args)) {
+            path += "?json=" + URLEncoder.encode(args.get("json").getAsString(), StandardCharsets.UTF_8);
+        }
+        return path;
+    }
+
+    public static String copy_uploaded_file(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String uploadId = args.get("uploadId").getAsString();
             JsonObject data = args.get("data").getAsJsonObject();
@@ -368,7 +471,7 @@ public class McpMiscExecutor {
 
     // --- Batch ---
 
-    public static String execute_batch(String id, JsonObject args, String token, RestApiClient client) {
+    public static String execute_batch(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             JsonObject data = args.get("data").getAsJsonObject();
             String path = "/batch";
@@ -25,6 +25,8 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -36,41 +38,54 @@ import com.google.gson.JsonObject;
 
 public class McpModelExecutor {
 
-    public static String search(String id, JsonObject args, String token, RestApiClient client) {
+    public static String search(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Search Records", () -> {
-            String model = args.get("model").getAsString();
-            String filter = args.has("filter") ? args.get("filter").getAsString() : "";
+            JsonElement response = client.get(searchPath(args), token);
+            return McpExecutorUtils.wrapJsonContent(id, response, McpResultEncoder.parseFields(args));
+        });
+    }
 
-            // Paging Support
-            int limit = args.has("limit") ? args.get("limit").getAsInt() : 10;
-            int offset = args.has("offset") ? args.get("offset").getAsInt() : 0;
+    public static void search(JsonElement id, JsonObject args, String token, RestApiClient client, OutputStream out)
+            throws IOException {
+        McpExecutorUtils.executeStreaming(id, "Search Records", McpResultEncoder.parseFields(args), out,
+                () -> client.getStream(searchPath(args), token));
+    }
 
-            StringBuilder sb = new StringBuilder("/models/").append(model);
-            sb.append("?$top=").append(limit);
-            sb.append("&$skip=").append(offset);
+    private static String searchPath(JsonObject args) {
+        String model = args.get("model").getAsString();
+        String filter = args.has("filter") ? args.get("filter").getAsString() : "";
 
-            if (!filter.isEmpty()) {
-                sb.append("&$filter=").append(URLEncoder.encode(filter, StandardCharsets.UTF_8));
-            }
+        // Paging Support
+        int limit = args.has("limit") ? args.get("limit").getAsInt() : 10;
+        int offset = args.has("offset") ? args.get("offset").getAsInt() : 0;
 
-            JsonElement response = client.get(sb.toString(), token);
-            return McpExecutorUtils.wrapJsonContent(id, response);
-        });
+        StringBuilder sb = new StringBuilder("/models/").append(model);
+        sb.append("?$top=").append(limit);
+        sb.append("&$skip=").append(offset);
+
+        if (!filter.isEmpty()) {
+            sb.append("&$filter=").append(URLEncoder.encode(filter, StandardCharsets.UTF_8));
+        }
+        String select = McpResultEncoder.getSelect(args);
+        if (select != null) {
+            sb.append("&$select=").append(URLEncoder.encode(select, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
     }
 
-    public static String get(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Record", () -> {
             String model = args.get("model").getAsString();
             JsonElement idEl = args.get("id");
-            String path = "/models/" + model + "/"
-                    + (McpExecutorUtils.isInteger(idEl) ? idEl.getAsInt() : idEl.getAsString());
+            String recordId = McpExecutorUtils.isInteger(idEl) ? Integer.toString(idEl.getAsInt()) : idEl.getAsString();
+            String path = "/models/" + model + "/" + recordId;
 
-            JsonElement response = client.get(path, token);
+            JsonElement response = McpRecordCache.get(client, path, path + "?$select=Updated", recordId, token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String create(String id, JsonObject args, String token, RestApiClient client) {
+    public static String create(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Create Record", () -> {
             String model = args.get("model").getAsString();
             JsonObject data = args.get("data").getAsJsonObject();
@@ -79,30 +94,42 @@ public class McpModelExecutor {
         });
     }
 
-    public static String update(String id, JsonObject args, String token, RestApiClient client) {
+    public static String update(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Update Record", () -> {
             String model = args.get("model").getAsString();
             JsonElement idEl = args.get("id");
             JsonObject data = args.get("data").getAsJsonObject();
 
-            String path = "/models/" + model + "/"
-                    + (McpExecutorUtils.isInteger(idEl) ? idEl.getAsInt() : idEl.getAsString());
-            JsonElement response = client.put(path, data, token);
+            String recordId = McpExecutorUtils.isInteger(idEl) ? Integer.toString(idEl.getAsInt()) : idEl.getAsString();
+            String path = "/models/" + model + "/" + recordId;
+            JsonElement response;
+            try {
+                response = client.put(path, data, token);
+            } finally {
+                // also after a failure, the write may have been applied
+                McpRecordCache.invalidate(recordId);
+            }
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String delete_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String delete_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Delete Record", () -> {
             String tableName = args.get("tableName").getAsString();
             String recordId = args.get("record_id").getAsString();
             String path = "/models/" + URLEncoder.encode(tableName, StandardCharsets.UTF_8) + "/" + recordId;
-            JsonElement response = client.delete(path, token);
+            JsonElement response;
+            try {
+                response = client.delete(path, token);
+            } finally {
+                // also after a failure, the write may have been applied
+                McpRecordCache.invalidate(recordId);
+            }
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String get_record_property(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_record_property(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Record Property", () -> {
             String tableName = args.get("tableName").getAsString();
             String recordId = args.get("record_id").getAsString();
@@ -114,7 +141,7 @@ public class McpModelExecutor {
         });
     }
 
-    public static String get_record_attachments(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_record_attachments(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Record Attachments", () -> {
             String tableName = args.get("tableName").getAsString();
             String recordId = args.get("record_id").getAsString();
@@ -125,7 +152,7 @@ public class McpModelExecutor {
         });
     }
 
-    public static String add_record_attachment(String id, JsonObject args, String token, RestApiClient client) {
+    public static String add_record_attachment(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Add Record Attachment", () -> {
             String tableName = args.get("tableName").getAsString();
             String recordId = args.get("record_id").getAsString();
@@ -137,7 +164,7 @@ public class McpModelExecutor {
         });
     }
 
-    public static String delete_record_attachments(String id, JsonObject args, String token, RestApiClient client) {
+    public static String delete_record_attachments(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Delete Record Attachments", () -> {
             String tableName = args.get("tableName").getAsString();
             String recordId = args.get("record_id").getAsString();
@@ -148,30 +175,48 @@ public class McpModelExecutor {
         });
     }
 
-    public static String get_record_attachments_zip(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_record_attachments_zip(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Record Attachments Zip", () -> {
-            String tableName = args.get("tableName").getAsString();
-            String recordId = args.get("record_id").getAsString();
-            String path = "/models/" + URLEncoder.encode(tableName, StandardCharsets.UTF_8) + "/" + recordId
-                    + "/attachments/zip";
-            byte[] response = client.getBinary(path, token, "application/zip");
+            byte[] response = client.getBinary(attachmentsZipPath(args), token, "application/zip");
             return McpExecutorUtils.wrapBinaryContent(id, response, "application/zip");
         });
     }
 
-    public static String get_record_attachment_by_name(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_record_attachments_zip(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeBinaryStreaming(id, "Get Record Attachments Zip", "application/zip", out,
+                () -> client.getStream(attachmentsZipPath(args), token, "application/zip"));
+    }
+
+    private static String attachmentsZipPath(JsonObject args) {
+        String tableName = args.get("tableName").getAsString();
+        String recordId = args.get("record_id").getAsString();
+        return "/models/" + URLEncoder.encode(tableName, StandardCharsets.UTF_8) + "/" + recordId
+                + "/attachments/zip";
+    }
+
+    public static String get_record_attachment_by_name(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Record Attachment By Name", () -> {
-            String tableName = args.get("tableName").getAsString();
-            String recordId = args.get("record_id").getAsString();
-            String fileName = args.get("fileName").getAsString();
-            String path = "/models/" + URLEncoder.encode(tableName, StandardCharsets.UTF_8) + "/" + recordId
-                    + "/attachments/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
-            byte[] response = client.getBinary(path, token, "application/octet-stream");
+            byte[] response = client.getBinary(attachmentPath(args), token, "application/octet-stream");
             return McpExecutorUtils.wrapBinaryContent(id, response, "application/octet-stream");
         });
     }
 
-    public static String print_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_record_attachment_by_name(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeBinaryStreaming(id, "Get Record Attachment By Name", "application/octet-stream", out,
+                () -> client.getStream(attachmentPath(args), token, "application/octet-stream"));
+    }
+
+    private static String attachmentPath(JsonObject args) {
+        String tableName = args.get("tableName").getAsString();
+        String recordId = args.get("record_id").getAsString();
+        String fileName = args.get("fileName").getAsString();
+        return "/models/" + URLEncoder.encode(tableName, StandardCharsets.UTF_8) + "/" + recordId
+                + "/attachments/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+    }
+
+    public static String print_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String tableName = args.get("tableName").getAsString();
             String recordId = args.get("record_id").getAsString();
@@ -183,7 +228,7 @@ public class McpModelExecutor {
         }
     }
 
-    public static String listModelsTool(String id, JsonObject args, String token, RestApiClient client) {
+    public static String listModelsTool(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "List Models", () -> {
             StringBuilder path = new StringBuilder("/models");
             if (args != null && args.has("filter")) {
@@ -197,11 +242,11 @@ public class McpModelExecutor {
         });
     }
 
-    public static String getModelYamlTool(String id, JsonObject args, String token, RestApiClient client) {
+    public static String getModelYamlTool(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Model YAML", () -> {
             String model = args.get("tableName").getAsString();
             String path = "/models/" + URLEncoder.encode(model, StandardCharsets.UTF_8) + "/yaml";
-            String yaml = client.getYaml(path, token);
+            String yaml = McpSchemaCache.getYaml(client, path, token);
             JsonObject item = new JsonObject();
             // Use EmbeddedResource for YAML content since TextContent doesn't support mimeType
             item.addProperty("type", "resource");
@@ -35,7 +35,7 @@ import com.google.gson.JsonObject;
 
 public class McpProcessExecutor {
 
-    public static String getProcessInfoTool(String id, JsonObject args, String token, RestApiClient client) {
+    public static String getProcessInfoTool(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Process Info", () -> {
             String processSlug = McpExecutorUtils.slugify(args.get("process_value").getAsString());
             String path = "/processes/" + URLEncoder.encode(processSlug, StandardCharsets.UTF_8);
@@ -44,7 +44,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String runProcess(String id, JsonObject args, String token, RestApiClient client) {
+    public static String runProcess(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Run Process", () -> {
             String processId = McpExecutorUtils.slugify(args.get("process_value").getAsString());
             JsonObject params = args.has("parameters") ? args.get("parameters").getAsJsonObject() : new JsonObject();
@@ -56,7 +56,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String list_server_jobs(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_server_jobs(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "List Server Jobs", () -> {
             String path = "/servers";
             JsonElement response = client.get(path, token);
@@ -64,7 +64,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String get_server_job(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_server_job(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Server Job", () -> {
             String serverId = args.get("server_id").getAsString();
             String path = "/servers/" + URLEncoder.encode(serverId, StandardCharsets.UTF_8);
@@ -73,7 +73,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String get_server_job_logs(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_server_job_logs(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Server Job Logs", () -> {
             String serverId = args.get("server_id").getAsString();
             String path = "/servers/" + URLEncoder.encode(serverId, StandardCharsets.UTF_8) + "/logs";
@@ -82,7 +82,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String toggle_server_job_state(String id, JsonObject args, String token, RestApiClient client) {
+    public static String toggle_server_job_state(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Toggle Server Job State", () -> {
             String serverId = args.get("server_id").getAsString();
             String path = "/servers/" + URLEncoder.encode(serverId, StandardCharsets.UTF_8) + "/state";
@@ -91,7 +91,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String run_server_job(String id, JsonObject args, String token, RestApiClient client) {
+    public static String run_server_job(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Run Server Job", () -> {
             String serverId = args.get("server_id").getAsString();
             String path = "/servers/" + URLEncoder.encode(serverId, StandardCharsets.UTF_8) + "/run";
@@ -100,7 +100,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String reload_server_jobs(String id, JsonObject args, String token, RestApiClient client) {
+    public static String reload_server_jobs(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Reload Server Jobs", () -> {
             String path = "/servers/reload";
             JsonElement response = client.post(path, new JsonObject(), token);
@@ -108,7 +108,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String get_scheduler_details(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_scheduler_details(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Scheduler Details", () -> {
             String schedulerId = args.get("scheduler_id").getAsString();
             String path = "/servers/schedulers/" + URLEncoder.encode(schedulerId, StandardCharsets.UTF_8);
@@ -117,7 +117,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String create_scheduler_job(String id, JsonObject args, String token, RestApiClient client) {
+    public static String create_scheduler_job(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Create Scheduler Job", () -> {
             String schedulerId = args.get("scheduler_id").getAsString();
             String path = "/servers/schedulers/" + URLEncoder.encode(schedulerId, StandardCharsets.UTF_8);
@@ -126,7 +126,7 @@ public class McpProcessExecutor {
         });
     }
 
-    public static String delete_scheduler_job(String id, JsonObject args, String token, RestApiClient client) {
+    public static String delete_scheduler_job(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String schedulerId = args.get("scheduler_id").getAsString();
             String path = "/servers/schedulers/" + URLEncoder.encode(schedulerId, StandardCharsets.UTF_8);
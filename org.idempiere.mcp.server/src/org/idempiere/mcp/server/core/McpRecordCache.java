@@ -0,0 +1,165 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.core;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.idempiere.mcp.server.client.RestApiClient;
+import org.idempiere.mcp.server.client.RestResponse;
+import org.idempiere.mcp.server.config.McpConfig;
+import org.idempiere.mcp.server.web.McpServlet;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Opt-in (MCP_RECORD_CACHE_ENABLED) per-session cache of single records read by the get record tools.
+ * <p>
+ * A cached record is never served without asking the server: it is revalidated with If-None-Match when the
+ * server sent an ETag, or by comparing its Updated timestamp with the one of a $select=Updated read, so an
+ * unchanged record costs a 304 or a few bytes instead of the full record. Write tools of the session drop the
+ * entries of the record they change, whether it was read or written by its numeric id or its UUID.
+ */
+class McpRecordCache {
+
+    private static final String ENV_RECORD_CACHE_ENABLED = "MCP_RECORD_CACHE_ENABLED";
+    private static final String ENV_RECORD_CACHE_TTL_MS = "MCP_RECORD_CACHE_TTL_MS";
+    private static final String ENV_RECORD_CACHE_MAX_ENTRIES = "MCP_RECORD_CACHE_MAX_ENTRIES";
+    private static final long DEFAULT_RECORD_CACHE_TTL_MS = 10 * 60 * 1000;
+    private static final long DEFAULT_RECORD_CACHE_MAX_ENTRIES = 1000;
+    private static final String UPDATED = "Updated";
+
+    private static final boolean ENABLED = Boolean
+            .parseBoolean(McpConfig.get(ENV_RECORD_CACHE_ENABLED, "false").trim());
+
+    private static final class CachedRecord {
+        private final JsonElement json;
+        private final String etag;
+        private final String updated;
+        // numeric id and UUID of the record, null if not in the response
+        private final String id;
+        private final String uid;
+
+        private CachedRecord(JsonElement json, String etag, String updated) {
+            this.json = json;
+            this.etag = etag;
+            this.updated = updated;
+            this.id = getProperty(json, "id");
+            this.uid = getProperty(json, "uid");
+        }
+
+        private boolean isRecord(String recordId) {
+            return recordId.equals(id) || recordId.equalsIgnoreCase(uid);
+        }
+    }
+
+    // keyed by session id, record id as requested (numeric id or UUID) and path
+    private static final McpCache<String, CachedRecord> cache = new McpCache<>("record",
+            McpCache.getLongConfig(ENV_RECORD_CACHE_TTL_MS, DEFAULT_RECORD_CACHE_TTL_MS),
+            McpCache.getLongConfig(ENV_RECORD_CACHE_MAX_ENTRIES, DEFAULT_RECORD_CACHE_MAX_ENTRIES));
+
+    /**
+     * Read a record through the cache of the current session
+     * @param client
+     * @param path        path of the record
+     * @param updatedPath path reading only the Updated column of the record, null if not supported
+     * @param recordId    record id, used to drop the entry on write
+     * @param token
+     * @return record, shared with the cache and must not be modified
+     * @throws Exception
+     */
+    static JsonElement get(RestApiClient client, String path, String updatedPath, String recordId, String token)
+            throws Exception {
+        String sessionId = McpServlet.getCurrentSessionId();
+        if (!ENABLED || sessionId == null)
+            return client.get(path, token);
+
+        String key = getKeyPrefix(sessionId, recordId) + path;
+        CachedRecord cached = cache.get(key);
+        if (cached != null && cached.etag == null && cached.updated != null && updatedPath != null) {
+            JsonElement current = client.get(updatedPath, token);
+            if (cached.updated.equals(getUpdated(current))) {
+                cache.revalidated(key);
+                return cached.json;
+            }
+            cached = null;
+        }
+        try (RestResponse response = client.getConditional(path, token, "application/json",
+                cached != null ? cached.etag : null, null)) {
+            if (response.getStatusCode() == 304 && cached != null) {
+                cache.revalidated(key);
+                return cached.json;
+            }
+            JsonElement json;
+            try (Reader reader = new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)) {
+                json = JsonParser.parseReader(reader);
+            }
+            String etag = response.getHeader("ETag");
+            String updated = getUpdated(json);
+            if (etag != null || (updated != null && updatedPath != null))
+                cache.put(key, new CachedRecord(json, etag, updated));
+            else
+                cache.invalidate(key);
+            return json;
+        }
+    }
+
+    /**
+     * Drop the cached copies of a record changed by the current session. Called after the write, so a read
+     * running concurrently with the write can't cache the record as it was before.
+     * @param recordId numeric id or UUID of the record
+     */
+    static void invalidate(String recordId) {
+        String sessionId = McpServlet.getCurrentSessionId();
+        if (!ENABLED || sessionId == null)
+            return;
+        String sessionPrefix = sessionId + "|";
+        String prefix = getKeyPrefix(sessionId, recordId);
+        cache.invalidateIf((key, cached) -> key.startsWith(sessionPrefix)
+                && (key.startsWith(prefix) || cached.isRecord(recordId)));
+    }
+
+    private static String getKeyPrefix(String sessionId, String recordId) {
+        return sessionId + "|" + recordId + "|";
+    }
+
+    private static String getUpdated(JsonElement json) {
+        if (json == null || !json.isJsonObject())
+            return null;
+        JsonObject record = json.getAsJsonObject();
+        return record.has(UPDATED) && !record.get(UPDATED).isJsonNull() ? record.get(UPDATED).toString() : null;
+    }
+
+    private static String getProperty(JsonElement json, String name) {
+        if (json == null || !json.isJsonObject())
+            return null;
+        JsonElement value = json.getAsJsonObject().get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+}
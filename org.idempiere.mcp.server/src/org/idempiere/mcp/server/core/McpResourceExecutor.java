@@ -39,26 +39,51 @@ public class McpResourceExecutor {
     
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
-    public static String listModels(String id, String token, RestApiClient client) {
+    private static final String ENV_METADATA_CACHE_TTL_MS = "MCP_METADATA_CACHE_TTL_MS";
+    private static final String ENV_METADATA_CACHE_MAX_ENTRIES = "MCP_METADATA_CACHE_MAX_ENTRIES";
+    private static final long DEFAULT_METADATA_CACHE_TTL_MS = 10 * 60 * 1000;
+    private static final long DEFAULT_METADATA_CACHE_MAX_ENTRIES = 200;
+
+    // resource text by uri and tenant/role/language of the token
+    private static final McpCache<String, String> metadataCache = new McpCache<>("metadata",
+            McpCache.getLongConfig(ENV_METADATA_CACHE_TTL_MS, DEFAULT_METADATA_CACHE_TTL_MS),
+            McpCache.getLongConfig(ENV_METADATA_CACHE_MAX_ENTRIES, DEFAULT_METADATA_CACHE_MAX_ENTRIES));
+
+    public static String listModels(JsonElement id, String token, RestApiClient client) {
         try {
-            JsonElement resp = client.get("/models", token);
-            return wrap(id, "idempiere://metadata/models", resp);
+            return read(id, "idempiere://metadata/models", "/models", token, client);
         } catch (Exception e) { return McpServiceImpl.createError(id, -32000, e.getMessage()); }
     }
 
-    public static String listProcesses(String id, String token, RestApiClient client) {
+    public static String listProcesses(JsonElement id, String token, RestApiClient client) {
         try {
             String filter = urlEncode("IsActive eq true");
-            JsonElement resp = client.get("/processes?$filter=" + filter, token);
-            return wrap(id, "idempiere://metadata/processes", resp);
+            return read(id, "idempiere://metadata/processes", "/processes?$filter=" + filter, token, client);
         } catch (Exception e) { return McpServiceImpl.createError(id, -32000, e.getMessage()); }
     }
 
-    private static String wrap(String id, String uri, JsonElement json) {
+    /**
+     * Read a resource through the metadata cache. Tokens without a role claim always read from the server.
+     */
+    private static String read(JsonElement id, String uri, String path, String token, RestApiClient client)
+            throws Exception {
+        String scope = McpExecutorUtils.getCacheScope(token);
+        String key = scope != null ? uri + "|" + scope : null;
+        String text = key != null ? metadataCache.get(key) : null;
+        if (text == null) {
+            JsonElement resp = client.get(path, token);
+            text = gson.toJson(resp);
+            if (key != null)
+                metadataCache.put(key, text);
+        }
+        return wrap(id, uri, text);
+    }
+
+    private static String wrap(JsonElement id, String uri, String text) {
         JsonObject item = new JsonObject();
         item.addProperty("uri", uri);
         item.addProperty("mimeType", "application/json");
-        item.addProperty("text", gson.toJson(json));
+        item.addProperty("text", text);
         
         JsonArray contents = new JsonArray(); contents.add(item);
         JsonObject res = new JsonObject(); res.add("contents", contents);
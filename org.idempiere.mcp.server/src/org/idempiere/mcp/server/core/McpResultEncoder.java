@@ -0,0 +1,538 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.core;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import org.idempiere.mcp.server.config.McpConfig;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Encodes a JSON document of the REST API into the text of a tool result.
+ * <p>
+ * The text is compact unless MCP_RESULT_PRETTY is set. Records, the elements of the arrays at the top of the
+ * document, can be projected to a set of fields. The text is kept within a byte budget (MCP_RESULT_MAX_BYTES):
+ * records that would take it over are dropped, as are other top level values, and a {@code _truncated} object
+ * reports how many records were returned out of how many and which values were omitted. A document read as a
+ * stream holds only one record or top level value at a time in memory.
+ */
+class McpResultEncoder {
+
+    private static final String ENV_RESULT_PRETTY = "MCP_RESULT_PRETTY";
+    private static final String ENV_RESULT_MAX_BYTES = "MCP_RESULT_MAX_BYTES";
+    private static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    // room kept after the last value for the end of the document and the truncation metadata
+    private static final int RESERVED_BYTES = 512;
+    private static final String TRUNCATED = "_truncated";
+    private static final String INDENT = "  ";
+    // identify a record and are kept by any projection
+    private static final Set<String> IDENTITY_FIELDS = Set.of("id", "uid", "model-name");
+
+    private static final boolean PRETTY = Boolean.parseBoolean(McpConfig.get(ENV_RESULT_PRETTY, "false").trim());
+    private static final long MAX_BYTES = getMaxBytes();
+    // default html safe escaping and no null values, as the REST API
+    private static final Gson gson = new Gson();
+
+    private final Set<String> fields;
+    private final boolean pretty;
+    private final long maxBytes;
+
+    /**
+     * @param fields lower case names of the record fields to keep, null to keep all
+     */
+    McpResultEncoder(Set<String> fields) {
+        this(fields, PRETTY, MAX_BYTES);
+    }
+
+    /**
+     * @param fields   lower case names of the record fields to keep, null to keep all
+     * @param pretty   true to indent the text
+     * @param maxBytes byte budget of the escaped text, 0 for no limit
+     */
+    McpResultEncoder(Set<String> fields, boolean pretty, long maxBytes) {
+        this.fields = fields;
+        this.pretty = pretty;
+        this.maxBytes = maxBytes;
+    }
+
+    private static long getMaxBytes() {
+        try {
+            return Math.max(0, Long.parseLong(McpConfig.get(ENV_RESULT_MAX_BYTES, Long.toString(DEFAULT_MAX_BYTES)).trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_MAX_BYTES;
+        }
+    }
+
+    /**
+     * @param args tool arguments
+     * @return lower case field names of the comma separated fields argument, null if not set
+     */
+    static Set<String> parseFields(JsonObject args) {
+        if (args == null || !args.has("fields") || args.get("fields").isJsonNull())
+            return null;
+        Set<String> fields = new HashSet<>();
+        for (String field : args.get("fields").getAsString().split(",")) {
+            if (!field.trim().isEmpty())
+                fields.add(field.trim().toLowerCase(Locale.ENGLISH));
+        }
+        return fields.isEmpty() ? null : fields;
+    }
+
+    /**
+     * @param args tool arguments
+     * @return fields argument as the value of a REST API $select option, null if not set
+     */
+    static String getSelect(JsonObject args) {
+        if (args == null || !args.has("fields") || args.get("fields").isJsonNull())
+            return null;
+        StringJoiner select = new StringJoiner(",");
+        for (String field : args.get("fields").getAsString().split(",")) {
+            if (!field.trim().isEmpty())
+                select.add(field.trim());
+        }
+        return select.length() > 0 ? select.toString() : null;
+    }
+
+    /**
+     * Encode one JSON document read from a stream as the content of a JSON string
+     * @param in  JSON document
+     * @param out receives the escaped text, not closed
+     * @throws IOException
+     */
+    void encode(JsonReader in, Writer out) throws IOException {
+        Document document = new Document(out);
+        JsonToken token = in.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            document.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                    in.beginArray();
+                    document.records(name, new StreamValues(in));
+                    in.endArray();
+                } else {
+                    document.property(name, parse(in));
+                }
+            }
+            in.endObject();
+            document.endObject();
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            document.records(null, new StreamValues(in));
+            in.endArray();
+        } else {
+            document.value(parse(in));
+        }
+    }
+
+    /**
+     * Encode one JSON document as the content of a JSON string, walking its tree
+     * @param json JSON document
+     * @param out  receives the escaped text, not closed
+     * @throws IOException
+     */
+    void encode(JsonElement json, Writer out) throws IOException {
+        Document document = new Document(out);
+        if (json.isJsonObject()) {
+            document.beginObject();
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+                if (entry.getValue().isJsonArray())
+                    document.records(entry.getKey(), new TreeValues(entry.getValue().getAsJsonArray()));
+                else
+                    document.property(entry.getKey(), entry.getValue());
+            }
+            document.endObject();
+        } else if (json.isJsonArray()) {
+            document.records(null, new TreeValues(json.getAsJsonArray()));
+        } else {
+            document.value(json);
+        }
+    }
+
+    private static JsonElement parse(JsonReader in) throws IOException {
+        try {
+            return JsonParser.parseReader(in);
+        } catch (JsonParseException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return record projected to the selected fields
+     */
+    private JsonElement project(JsonElement record) {
+        if (fields == null || !record.isJsonObject())
+            return record;
+        JsonObject projected = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : record.getAsJsonObject().entrySet()) {
+            String key = entry.getKey().toLowerCase(Locale.ENGLISH);
+            if (fields.contains(key) || IDENTITY_FIELDS.contains(key))
+                projected.add(entry.getKey(), entry.getValue());
+        }
+        return projected;
+    }
+
+    /**
+     * Values of an array, read one at a time
+     */
+    private interface Values {
+        boolean hasNext() throws IOException;
+
+        JsonElement next() throws IOException;
+
+        void skip() throws IOException;
+    }
+
+    private static class StreamValues implements Values {
+        private final JsonReader in;
+
+        StreamValues(JsonReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return in.hasNext();
+        }
+
+        @Override
+        public JsonElement next() throws IOException {
+            return parse(in);
+        }
+
+        @Override
+        public void skip() throws IOException {
+            in.skipValue();
+        }
+    }
+
+    private static class TreeValues implements Values {
+        private final Iterator<JsonElement> iterator;
+
+        TreeValues(JsonArray array) {
+            this.iterator = array.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public JsonElement next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void skip() {
+            iterator.next();
+        }
+    }
+
+    /**
+     * Text of the document being encoded. Every value is encoded on its own first, so one that doesn't fit in the
+     * byte budget can be left out.
+     */
+    private class Document {
+        private final JsonStringWriter text;
+        private final JsonWriter writer;
+        // [array name, returned, total] of the record arrays cut short
+        private final List<Object[]> truncated = new ArrayList<>();
+        // names of the top level values left out
+        private final List<String> omitted = new ArrayList<>();
+        private int depth;
+
+        Document(Writer out) {
+            text = new JsonStringWriter(out);
+            writer = newWriter(text);
+        }
+
+        void beginObject() throws IOException {
+            writer.beginObject();
+            depth++;
+        }
+
+        void endObject() throws IOException {
+            if (!truncated.isEmpty() || !omitted.isEmpty()) {
+                writer.name(TRUNCATED);
+                writeTruncated();
+            }
+            writer.endObject();
+            depth--;
+        }
+
+        /**
+         * Write a property of the top level object, left out if it doesn't fit
+         */
+        void property(String name, JsonElement value) throws IOException {
+            if (value.isJsonNull())
+                return;
+            String json = toJson(value);
+            if (!fits(json, name)) {
+                omitted.add(name);
+                return;
+            }
+            writer.name(name).jsonValue(json);
+        }
+
+        /**
+         * Write an array of records until the byte budget is reached, counting the records dropped
+         * @param name name of the array property, null for a top level array
+         */
+        void records(String name, Values values) throws IOException {
+            if (name != null)
+                writer.name(name);
+            writer.beginArray();
+            depth++;
+            int returned = 0;
+            int total = 0;
+            boolean full = false;
+            while (values.hasNext()) {
+                total++;
+                if (full) {
+                    values.skip();
+                    continue;
+                }
+                String json = toJson(project(values.next()));
+                if (!fits(json, null)) {
+                    full = true;
+                    continue;
+                }
+                writer.jsonValue(json);
+                returned++;
+            }
+            if (full) {
+                truncated.add(new Object[] { name != null ? name : "items", returned, total });
+                // a top level array has no property to hold the metadata, it goes into a last element
+                if (name == null) {
+                    writer.beginObject();
+                    writer.name(TRUNCATED);
+                    writeTruncated();
+                    writer.endObject();
+                }
+            }
+            writer.endArray();
+            depth--;
+        }
+
+        /**
+         * Write a document that is a single value, replaced by the truncation metadata if it doesn't fit
+         */
+        void value(JsonElement value) throws IOException {
+            String json = toJson(value);
+            if (fits(json, null)) {
+                writer.jsonValue(json);
+                return;
+            }
+            omitted.add("value");
+            writer.beginObject();
+            writer.name(TRUNCATED);
+            writeTruncated();
+            writer.endObject();
+        }
+
+        /**
+         * @return JSON text of value, indented for the current depth of the document
+         */
+        private String toJson(JsonElement value) throws IOException {
+            StringWriter buffer = new StringWriter();
+            gson.toJson(value, newWriter(buffer));
+            String json = buffer.toString();
+            // strings can't hold a raw line break, each one starts an indented line
+            return pretty && depth > 0 ? json.replace("\n", "\n" + INDENT.repeat(depth)) : json;
+        }
+
+        /**
+         * @param json value to write
+         * @param name property name of the value, null for an array element
+         * @return true if the value fits in the byte budget, with room left for the end of the document
+         */
+        private boolean fits(String json, String name) {
+            if (maxBytes <= 0)
+                return true;
+            long size = JsonStringWriter.escapedBytes(json) + 1;
+            if (name != null)
+                size += JsonStringWriter.escapedBytes(name) + 4;
+            if (pretty)
+                size += 2 + depth * INDENT.length();
+            return text.getBytes() + size + RESERVED_BYTES <= maxBytes;
+        }
+
+        private void writeTruncated() throws IOException {
+            writer.beginObject();
+            writer.name("maxBytes").value(maxBytes);
+            for (Object[] array : truncated) {
+                writer.name((String) array[0]).beginObject();
+                writer.name("returned").value((Integer) array[1]);
+                writer.name("total").value((Integer) array[2]);
+                writer.endObject();
+            }
+            if (!omitted.isEmpty()) {
+                writer.name("omitted").beginArray();
+                for (String name : omitted)
+                    writer.value(name);
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+    }
+
+    private JsonWriter newWriter(Writer out) {
+        JsonWriter writer = new JsonWriter(out);
+        if (pretty)
+            writer.setIndent(INDENT);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        return writer;
+    }
+
+    /**
+     * Writer escaping everything written to it as the content of a JSON string, counting the UTF-8 bytes written
+     */
+    static final class JsonStringWriter extends Writer {
+
+        private final Writer out;
+        private long bytes;
+
+        JsonStringWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            switch (c) {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            case 0x2028:
+            case 0x2029:
+                out.write(String.format("\\u%04x", c));
+                break;
+            default:
+                if (c < 0x20)
+                    out.write(String.format("\\u%04x", c));
+                else
+                    out.write(c);
+            }
+            bytes += escapedBytes(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++)
+                write(cbuf[i]);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++)
+                write(str.charAt(i));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            // the underlying writer belongs to the caller
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @param c
+         * @return UTF-8 size of the escaped character
+         */
+        static int escapedBytes(int c) {
+            switch (c) {
+            case '"':
+            case '\\':
+            case '\n':
+            case '\r':
+            case '\t':
+                return 2;
+            case 0x2028:
+            case 0x2029:
+                return 6;
+            default:
+                if (c < 0x20)
+                    return 6;
+                if (c < 0x80)
+                    return 1;
+                if (c < 0x800 || Character.isSurrogate((char) c))
+                    return 2;
+                return 3;
+            }
+        }
+
+        /**
+         * @param s
+         * @return UTF-8 size of the escaped string
+         */
+        static long escapedBytes(String s) {
+            long size = 0;
+            for (int i = 0; i < s.length(); i++)
+                size += escapedBytes(s.charAt(i));
+            return size;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.core;
+
+import java.util.Locale;
+
+import org.idempiere.mcp.server.client.RestApiClient;
+import org.idempiere.mcp.server.client.RestResponse;
+
+/**
+ * Cache of the OpenAPI YAML of models and views, bounded by the total size of the cached documents.
+ * <p>
+ * Documents are keyed by path (model or view name) and the tenant, role and language of the token. Past its
+ * time-to-live a document is revalidated with a conditional GET when the server sent an ETag or Last-Modified
+ * header, so an unchanged schema costs a 304 instead of the full document.
+ */
+class McpSchemaCache {
+
+    private static final String ENV_SCHEMA_CACHE_TTL_MS = "MCP_SCHEMA_CACHE_TTL_MS";
+    private static final String ENV_SCHEMA_CACHE_MAX_BYTES = "MCP_SCHEMA_CACHE_MAX_BYTES";
+    private static final long DEFAULT_SCHEMA_CACHE_TTL_MS = 5 * 60 * 1000;
+    private static final long DEFAULT_SCHEMA_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static final class Schema {
+        private final String yaml;
+        private final String etag;
+        private final String lastModified;
+
+        private Schema(String yaml, String etag, String lastModified) {
+            this.yaml = yaml;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    // YAML documents are (mostly) ASCII, the length is close to the size in bytes
+    private static final McpCache<String, Schema> cache = new McpCache<>("schema",
+            McpCache.getLongConfig(ENV_SCHEMA_CACHE_TTL_MS, DEFAULT_SCHEMA_CACHE_TTL_MS),
+            McpCache.getLongConfig(ENV_SCHEMA_CACHE_MAX_BYTES, DEFAULT_SCHEMA_CACHE_MAX_BYTES),
+            schema -> schema.yaml.length());
+
+    /**
+     * Get a YAML document through the cache. Tokens without a role claim always read from the server.
+     * @param client
+     * @param path   path of the YAML document
+     * @param token
+     * @return YAML document
+     * @throws Exception
+     */
+    static String getYaml(RestApiClient client, String path, String token) throws Exception {
+        String scope = McpExecutorUtils.getCacheScope(token);
+        if (scope == null)
+            return client.getYaml(path, token);
+        String key = path.toLowerCase(Locale.ENGLISH) + "|" + scope;
+        Schema schema = cache.get(key);
+        if (schema != null)
+            return schema.yaml;
+
+        Schema expired = cache.getExpired(key);
+        if (expired != null && expired.etag == null && expired.lastModified == null)
+            expired = null;
+        try (RestResponse response = client.getConditional(path, token, "application/yaml",
+                expired != null ? expired.etag : null, expired != null ? expired.lastModified : null)) {
+            if (response.getStatusCode() == 304 && expired != null) {
+                cache.revalidated(key);
+                return expired.yaml;
+            }
+            String yaml = response.readString();
+            cache.put(key, new Schema(yaml, response.getHeader("ETag"), response.getHeader("Last-Modified")));
+            return yaml;
+        }
+    }
+}
@@ -28,95 +28,149 @@ package org.idempiere.mcp.server.core;
 import org.idempiere.mcp.server.api.IMcpService;
 import org.idempiere.mcp.server.client.RestApiClient;
 import org.idempiere.mcp.server.web.McpServlet;
+import org.idempiere.mcp.server.web.McpSession;
 import org.osgi.service.component.annotations.Component;
-
+import org.osgi.service.component.annotations.Deactivate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.logging.Level;
 
 import org.compiere.util.CLogger;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 @Component(service = IMcpService.class, immediate = true)
 public class McpServiceImpl implements IMcpService {
 
+        /** fields argument of the tools returning records, see McpResultEncoder */
+        private static final String[] FIELDS_PROPERTY = new String[] { "fields", "string",
+                        "Comma separated list of columns to return for each record (optional, all columns if empty)." };
+
         private final CLogger log = CLogger.getCLogger(McpServiceImpl.class);
         private final Gson gson = new Gson();
         private final RestApiClient restClient = new RestApiClient();
 
         @Override
         public String processRequest(String jsonRequest, String authToken, String sessionId) {
+                JsonObject req;
+                try {
+                        req = JsonParser.parseString(jsonRequest).getAsJsonObject();
+                } catch (Exception e) {
+                        log.log(Level.SEVERE, "Error processing MCP request: " + e.getLocalizedMessage(), e);
+                        return createError(null, -32603, "Internal Error: " + e.getMessage());
+                }
+                return dispatch(req, authToken, sessionId);
+        }
+
+        @Override
+        public boolean processRequest(JsonObject request, String authToken, String sessionId, OutputStream out) throws IOException {
+                if (request.has("method") && "tools/list".equals(request.get("method").getAsString())) {
+                        if (log.isLoggable(Level.INFO))
+                                log.info("MCP Request: tools/list");
+                        writeToolsList(getRequestId(request), out);
+                        return true;
+                }
+                StreamingToolHandler streamingHandler = getStreamingToolHandler(request);
+                if (streamingHandler != null) {
+                        streamToolCall(streamingHandler, request, authToken, sessionId, out);
+                        return true;
+                }
+                String response = dispatch(request, authToken, sessionId);
+                if (response == null)
+                        return false;
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                writer.write(response);
+                writer.flush();
+                return true;
+        }
+
+        /**
+         * @param request
+         * @return streaming handler of a tools/call request, null if the request isn't a call of a streaming tool
+         */
+        private StreamingToolHandler getStreamingToolHandler(JsonObject request) {
+                if (!request.has("method") || !"tools/call".equals(request.get("method").getAsString()))
+                        return null;
+                JsonObject params = request.has("params") ? request.getAsJsonObject("params") : null;
+                if (params == null || !params.has("name"))
+                        return null;
+                return streamingToolHandlers.get(params.get("name").getAsString());
+        }
+
+        private void streamToolCall(StreamingToolHandler handler, JsonObject req, String authToken, String sessionId,
+                        OutputStream out) throws IOException {
                 McpServlet.setCurrentSessionId(sessionId);
                 try {
-                        JsonElement requestIdElement = null;
-                        String requestId = null;
-                        try {
-                                JsonObject req = JsonParser.parseString(jsonRequest).getAsJsonObject();
-                                if (req.has("id") && !req.get("id").isJsonNull()) {
-                                        requestIdElement = req.get("id");
-                                        requestId = requestIdElement.getAsString();
-                                }
-
-                                String method = req.get("method").getAsString();
-                                if (log.isLoggable(Level.INFO))
-                                        log.info("MCP Request: " + method);
-
-                                JsonObject params = req.has("params") ? req.getAsJsonObject("params") : new JsonObject();
-
-                                String response;
-                                switch (method) {
-                                        case "initialize":
-                                                response = handleInitialize(requestId);
-                                                break;
-                                        case "notifications/initialized":
-                                                return null; // No response needed for notification
-                                        case "notifications/cancelled":
-                                                return null; // No response needed for notification
-                                        case "ping":
-                                                response = createSuccess(requestId, new JsonObject());
-                                                break;
-                                        case "tools/list":
-                                                response = handleListTools(requestId);
-                                                break;
-                                        case "tools/call":
-                                                response = handleToolCall(requestId, params, authToken, sessionId);
-                                                break;
-                                        case "resources/list":
-                                                response = handleListResources(requestId);
-                                                break;
-                                        case "resources/read":
-                                                response = handleReadResource(requestId, params, authToken, sessionId);
-                                                break;
-                                        default:
-                                                response = createError(requestId, -32601, "Method not found: " + method);
-                                                break;
-                                }
-                                return normalizeResponseId(response, requestIdElement);
-                        } catch (Exception e) {
-                                log.log(Level.SEVERE, "Error processing MCP request: " + e.getLocalizedMessage(), e);
-                                return normalizeResponseId(createError(requestId, -32603, "Internal Error: " + e.getMessage()), requestIdElement);
-                        }
+                        JsonElement requestId = getRequestId(req);
+                        if (log.isLoggable(Level.INFO))
+                                log.info("MCP Request: tools/call");
+                        JsonObject params = req.getAsJsonObject("params");
+                        startDeadline(params.get("name").getAsString());
+                        handler.handle(requestId, params.getAsJsonObject("arguments"), authToken, sessionId, out);
                 } finally {
+                        RestApiClient.setDeadline(0);
                         McpServlet.clearCurrentSessionId();
                 }
         }
 
-        private String normalizeResponseId(String response, JsonElement requestIdElement) {
-                if (response == null || requestIdElement == null) {
-                        return response;
-                }
+        private String dispatch(JsonObject req, String authToken, String sessionId) {
+                McpServlet.setCurrentSessionId(sessionId);
+                JsonElement requestId = getRequestId(req);
                 try {
-                        JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                        json.add("id", requestIdElement.deepCopy());
-                        return json.toString();
+                        String method = req.get("method").getAsString();
+                        if (log.isLoggable(Level.INFO))
+                                log.info("MCP Request: " + method);
+
+                        JsonObject params = req.has("params") ? req.getAsJsonObject("params") : new JsonObject();
+
+                        switch (method) {
+                                case "initialize":
+                                        return handleInitialize(requestId);
+                                case "notifications/initialized":
+                                        return null; // No response needed for notification
+                                case "notifications/cancelled":
+                                        return null; // No response needed for notification
+                                case "ping":
+                                        return createSuccess(requestId, new JsonObject());
+                                case "tools/list":
+                                        return handleListTools(requestId);
+                                case "tools/call":
+                                        return handleToolCall(requestId, params, authToken, sessionId);
+                                case "resources/list":
+                                        return handleListResources(requestId);
+                                case "resources/read":
+                                        return handleReadResource(requestId, params, authToken, sessionId);
+                                default:
+                                        return createError(requestId, -32601, "Method not found: " + method);
+                        }
                 } catch (Exception e) {
-                        return response;
+                        log.log(Level.SEVERE, "Error processing MCP request: " + e.getLocalizedMessage(), e);
+                        return createError(requestId, -32603, "Internal Error: " + e.getMessage());
+                } finally {
+                        McpServlet.clearCurrentSessionId();
                 }
         }
 
-        private String handleInitialize(String id) {
+        /**
+         * @param req
+         * @return id element of the request, null for a notification
+         */
+        private static JsonElement getRequestId(JsonObject req) {
+                JsonElement id = req.get("id");
+                return id != null && !id.isJsonNull() ? id : null;
+        }
+
+        private String handleInitialize(JsonElement id) {
                 JsonObject capabilities = new JsonObject();
 
                 // Declare support for Tools and Resources
@@ -140,7 +194,11 @@ public class McpServiceImpl implements IMcpService {
                 return createSuccess(id, result);
         }
 
-        private String handleListTools(String id) {
+        /**
+         * Build the tool catalogue, called once at activation
+         * @return tools/list result
+         */
+        private JsonObject buildToolsList() {
                 JsonArray tools = new JsonArray();
 
                 tools.add(createTool("idempiere_model_search_records",
@@ -160,7 +218,8 @@ public class McpServiceImpl implements IMcpService {
                                                 + "**Search priority for text field**: Value, Name, DocumentNo, Description, ReferenceNo, Email, Phone and Note"
                                                 + "**Hint for Text field search**: use the OData 'contains' function for partial match and 'tolower' for case insensitive search." },
                                 new String[] { "limit", "integer", "Max records (default 10)" },
-                                new String[] { "offset", "integer", "Records to skip (default 0)" }));
+                                new String[] { "offset", "integer", "Records to skip (default 0)" },
+                                FIELDS_PROPERTY));
 
                 tools.add(createTool("idempiere_model_get_record",
                                 "Get a record by ID (Integer or UUID). "
@@ -389,7 +448,8 @@ public class McpServiceImpl implements IMcpService {
                                                 + "**Hint for Text field search**: use the OData 'contains' function for partial match and 'tolower' for case insensitive search." },
                                 new String[] { "sort_column", "string",
                                                 "Column to sort by, use ! prefix for descending sort (optional)" },
-                                new String[] { "page_no", "integer", "Current page no (optional)" }));
+                                new String[] { "page_no", "integer", "Current page no (optional)" },
+                                FIELDS_PROPERTY));
                 tools.add(createTool("idempiere_window_create_record", "Create window record. "
                                 + "**Distinction**: Use this tool when you need to trigger window logic, callouts, and validations. For raw data access without UI logic, use 'idempiere_model_create_record'. "
                                 + "**Important Note**: Ask user for missing mandatory fields. "
@@ -449,7 +509,8 @@ public class McpServiceImpl implements IMcpService {
                                                 + "**Hint**: Use 'idempiere_window_list_windows' tool to search for window." },
                                 new String[] { "tab_name", "string", "tab name (ad_tab.name)." },
                                 new String[] { "record_id", "string", "record id" },
-                                new String[] { "child_tab_name", "string", "child tab name (ad_tab.name)." }));
+                                new String[] { "child_tab_name", "string", "child tab name (ad_tab.name)." },
+                                FIELDS_PROPERTY));
                 tools.add(createTool("idempiere_window_create_child_tab_record", "Create child tab record."
                                 + "**Important Note**: Ask user for missing mandatory fields. "
                                 + "**Security**: Ask user for confirmation before saving unless user explicitly ask for no confirmation. "
@@ -486,7 +547,8 @@ public class McpServiceImpl implements IMcpService {
                                                 + "**Hint for Text field search**: use the OData 'contains' function for partial match and 'tolower' for case insensitive search." },
                                 new String[] { "sort_column", "string", "Column to sort by (optional)." },
                                 new String[] { "limit", "integer", "Max records (default 10)" },
-                                new String[] { "offset", "integer", "Records to skip (default 0)" }));
+                                new String[] { "offset", "integer", "Records to skip (default 0)" },
+                                FIELDS_PROPERTY));
                 tools.add(createTool("idempiere_view_create_record", "Create a record in a view.",
                                 new String[] { "viewName", "data" },
                                 new String[] { "viewName", "string", "View Name." },
@@ -540,9 +602,13 @@ public class McpServiceImpl implements IMcpService {
                                 new String[] { "id", "string", "Record ID." }));
 
                 // References
-                tools.add(createTool("idempiere_reference_get", "Get reference definition.",
-                                new String[] { "id" },
-                                new String[] { "id", "string", "Reference ID, UUID, or Name." }));
+                tools.add(createTool("idempiere_reference_get", "Get reference definition. "
+                                + "Use 'ids' to get several references in one call.",
+                                new String[] {},
+                                new String[] { "id", "string", "Reference ID, UUID, or Name." },
+                                new String[] { "ids", "string",
+                                                "Comma separated list of at most " + McpMiscExecutor.MAX_REFERENCE_IDS
+                                                + " Reference IDs, UUIDs, or Names (optional, instead of id)." }));
 
                 // Caches
                 tools.add(createTool("idempiere_cache_list_caches", "List active caches (Admin only).", new String[] {},
@@ -585,7 +651,8 @@ public class McpServiceImpl implements IMcpService {
                                                 "JSON for info window query parameters (optional)." },
                                 new String[] { "where_clause", "string", "Where clause (optional)." },
                                 new String[] { "order_by", "string", "Order by clause (optional)." },
-                                new String[] { "page_no", "integer", "Current page number (default 0)." }));
+                                new String[] { "page_no", "integer", "Current page number (default 0)." },
+                                FIELDS_PROPERTY));
                 tools.add(createTool("idempiere_info_get_info_window_columns",
                                 "Get column definitions of an info window.",
                                 new String[] { "infoSlug" },
@@ -737,19 +804,87 @@ public class McpServiceImpl implements IMcpService {
 
                 JsonObject res = new JsonObject();
                 res.add("tools", tools);
-                return createSuccess(id, res);
+                return res;
+        }
+
+        private String handleListTools(JsonElement id) {
+                return "{\"jsonrpc\":\"2.0\",\"id\":" + toResponseId(id) + ",\"result\":" + toolsListJson + "}";
+        }
+
+        /**
+         * Write the tools/list response from the pre-encoded catalogue
+         * @param id  request id element, may be null
+         * @param out
+         * @throws IOException
+         */
+        private void writeToolsList(JsonElement id, OutputStream out) throws IOException {
+                out.write(("{\"jsonrpc\":\"2.0\",\"id\":" + toResponseId(id) + ",\"result\":")
+                                .getBytes(StandardCharsets.UTF_8));
+                out.write(toolsListBytes);
+                out.write('}');
+        }
+
+        @Override
+        public String getToolsListETag() {
+                return toolsListETag;
         }
 
         private final java.util.Map<String, ToolHandler> toolHandlers = new java.util.HashMap<>();
+        /** tools writing large REST API responses straight to the output, used instead of toolHandlers when an output stream is available */
+        private final java.util.Map<String, StreamingToolHandler> streamingToolHandlers = new java.util.HashMap<>();
+
+        /** tools/list result, encoded once as the catalogue is static */
+        private final String toolsListJson;
+        private final byte[] toolsListBytes;
+        private final String toolsListETag;
 
         public McpServiceImpl() {
                 registerTools();
+                toolsListJson = buildToolsList().toString();
+                toolsListBytes = toolsListJson.getBytes(StandardCharsets.UTF_8);
+                toolsListETag = createETag(toolsListBytes);
+        }
+
+        @Override
+        public boolean refreshToken(String sessionId) {
+                McpSession session = McpServlet.getSession(sessionId);
+                McpServlet.TokenInfo info = session != null ? session.getTokenInfo() : null;
+                if (info == null || info.getRefreshToken() == null)
+                        return false;
+                return restClient.refreshToken(session, info) != null;
+        }
+
+        @Override
+        public JsonObject getStatus() {
+                JsonObject status = new JsonObject();
+                status.add("rest", restClient.getStatus());
+                status.add("caches", McpCache.getAllStats());
+                return status;
+        }
+
+        @Deactivate
+        public void deactivate() {
+                restClient.close();
+        }
+
+        private static String createETag(byte[] content) {
+                try {
+                        byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+                        StringBuilder sb = new StringBuilder("\"");
+                        for (int i = 0; i < 16; i++)
+                                sb.append(String.format("%02x", hash[i]));
+                        return sb.append('"').toString();
+                } catch (NoSuchAlgorithmException e) {
+                        return null;
+                }
         }
 
         private void registerTools() {
                 // Models
                 toolHandlers.put("idempiere_model_search_records",
                                 (id, args, token, sessionId) -> McpModelExecutor.search(id, args, token, restClient));
+                streamingToolHandlers.put("idempiere_model_search_records",
+                                (id, args, token, sessionId, out) -> McpModelExecutor.search(id, args, token, restClient, out));
                 toolHandlers.put("idempiere_model_get_record",
                                 (id, args, token, sessionId) -> McpModelExecutor.get(id, args, token, restClient));
                 toolHandlers.put("idempiere_model_create_record",
@@ -776,10 +911,18 @@ public class McpServiceImpl implements IMcpService {
                                 (id, args, token, sessionId) -> McpModelExecutor.get_record_attachments_zip(id, args,
                                                 token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_model_get_record_attachments_zip",
+                                (id, args, token, sessionId, out) -> McpModelExecutor.get_record_attachments_zip(id, args,
+                                                token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_model_get_record_attachment_by_name",
                                 (id, args, token, sessionId) -> McpModelExecutor.get_record_attachment_by_name(id, args,
                                                 token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_model_get_record_attachment_by_name",
+                                (id, args, token, sessionId, out) -> McpModelExecutor.get_record_attachment_by_name(id, args,
+                                                token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_model_print_record",
                                 (id, args, token, sessionId) -> McpModelExecutor.print_record(id, args, token,
                                                 restClient));
@@ -844,6 +987,9 @@ public class McpServiceImpl implements IMcpService {
                 toolHandlers.put("idempiere_window_get_records",
                                 (id, args, token, sessionId) -> McpWindowExecutor.get_window_records(id, args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_window_get_records",
+                                (id, args, token, sessionId, out) -> McpWindowExecutor.get_window_records(id, args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_window_create_record",
                                 (id, args, token, sessionId) -> McpWindowExecutor.create_window_record(id, args, token,
                                                 restClient));
@@ -867,6 +1013,9 @@ public class McpServiceImpl implements IMcpService {
                 toolHandlers.put("idempiere_window_get_child_tab_records",
                                 (id, args, token, sessionId) -> McpWindowExecutor.get_child_tab_records(id, args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_window_get_child_tab_records",
+                                (id, args, token, sessionId, out) -> McpWindowExecutor.get_child_tab_records(id, args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_window_create_child_tab_record",
                                 (id, args, token, sessionId) -> McpWindowExecutor.create_child_tab_record(id, args,
                                                 token,
@@ -882,6 +1031,9 @@ public class McpServiceImpl implements IMcpService {
                 toolHandlers.put("idempiere_view_search_records",
                                 (id, args, token, sessionId) -> McpViewExecutor.search_view_records(id, args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_view_search_records",
+                                (id, args, token, sessionId, out) -> McpViewExecutor.search_view_records(id, args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_view_create_record",
                                 (id, args, token, sessionId) -> McpViewExecutor.create_view_record(id, args, token,
                                                 restClient));
@@ -914,10 +1066,18 @@ public class McpServiceImpl implements IMcpService {
                                 (id, args, token, sessionId) -> McpViewExecutor.get_view_record_attachments_zip(id,
                                                 args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_view_get_record_attachments_zip",
+                                (id, args, token, sessionId, out) -> McpViewExecutor.get_view_record_attachments_zip(id,
+                                                args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_view_get_record_attachment_by_name",
                                 (id, args, token, sessionId) -> McpViewExecutor.get_view_record_attachment_by_name(id,
                                                 args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_view_get_record_attachment_by_name",
+                                (id, args, token, sessionId, out) -> McpViewExecutor.get_view_record_attachment_by_name(id,
+                                                args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_view_print_record",
                                 (id, args, token, sessionId) -> McpViewExecutor.print_view_record(id, args, token,
                                                 restClient));
@@ -950,6 +1110,9 @@ public class McpServiceImpl implements IMcpService {
                 toolHandlers.put("idempiere_node_get_log_file",
                                 (id, args, token, sessionId) -> McpMiscExecutor.get_node_log_file(id, args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_node_get_log_file",
+                                (id, args, token, sessionId, out) -> McpMiscExecutor.get_node_log_file(id, args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_node_rotate_log",
                                 (id, args, token, sessionId) -> McpMiscExecutor.rotate_node_log(id, args, token,
                                                 restClient));
@@ -962,6 +1125,9 @@ public class McpServiceImpl implements IMcpService {
                 toolHandlers.put("idempiere_info_get_info_window_data",
                                 (id, args, token, sessionId) -> McpInfoExecutor.get_info_window_data(id, args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_info_get_info_window_data",
+                                (id, args, token, sessionId, out) -> McpInfoExecutor.get_info_window_data(id, args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_info_get_info_window_columns",
                                 (id, args, token, sessionId) -> McpInfoExecutor.get_info_window_columns(id, args, token,
                                                 restClient));
@@ -1028,6 +1194,9 @@ public class McpServiceImpl implements IMcpService {
                                                 restClient));
                 toolHandlers.put("idempiere_chart_get",
                                 (id, args, token, sessionId) -> McpMiscExecutor.get_chart(id, args, token, restClient));
+                streamingToolHandlers.put("idempiere_chart_get",
+                                (id, args, token, sessionId, out) -> McpMiscExecutor.get_chart(id, args, token, restClient,
+                                                out));
                 toolHandlers.put("idempiere_chart_get_data",
                                 (id, args, token, sessionId) -> McpMiscExecutor.get_chart_data(id, args, token,
                                                 restClient));
@@ -1056,6 +1225,9 @@ public class McpServiceImpl implements IMcpService {
                 toolHandlers.put("idempiere_upload_get_uploaded_file",
                                 (id, args, token, sessionId) -> McpMiscExecutor.get_uploaded_file(id, args, token,
                                                 restClient));
+                streamingToolHandlers.put("idempiere_upload_get_uploaded_file",
+                                (id, args, token, sessionId, out) -> McpMiscExecutor.get_uploaded_file(id, args, token,
+                                                restClient, out));
                 toolHandlers.put("idempiere_upload_copy_uploaded_file",
                                 (id, args, token, sessionId) -> McpMiscExecutor.copy_uploaded_file(id, args, token,
                                                 restClient));
@@ -1066,19 +1238,42 @@ public class McpServiceImpl implements IMcpService {
                                                 restClient));
         }
 
-        private String handleToolCall(String id, JsonObject params, String token, String sessionId) {
+        private String handleToolCall(JsonElement id, JsonObject params, String token, String sessionId) {
                 String name = params.get("name").getAsString();
                 JsonObject args = params.getAsJsonObject("arguments");
 
                 ToolHandler handler = toolHandlers.get(name);
                 if (handler != null) {
-                        return handler.handle(id, args, token, sessionId);
+                        startDeadline(name);
+                        try {
+                                return handler.handle(id, args, token, sessionId);
+                        } finally {
+                                RestApiClient.setDeadline(0);
+                        }
                 } else {
                         return createError(id, -32601, "Tool not found: " + name);
                 }
         }
 
-        private String handleListResources(String id) {
+        /**
+         * Start the deadline budget of a tool call, shared by all REST calls of the tool
+         * @param toolName
+         */
+        private void startDeadline(String toolName) {
+                RestApiClient.setDeadline(System.currentTimeMillis() + restClient.getDeadlineMs(getToolFamily(toolName)));
+        }
+
+        /**
+         * @param toolName
+         * @return family of the tool, the word after the idempiere_ prefix (e.g. model, window, process)
+         */
+        private static String getToolFamily(String toolName) {
+                String name = toolName.startsWith("idempiere_") ? toolName.substring("idempiere_".length()) : toolName;
+                int index = name.indexOf('_');
+                return index > 0 ? name.substring(0, index) : name;
+        }
+
+        private String handleListResources(JsonElement id) {
                 JsonArray res = new JsonArray();
                 res.add(createRes("idempiere://metadata/models", "List All Models"));
                 res.add(createRes("idempiere://metadata/processes", "List All Processes"));
@@ -1088,7 +1283,7 @@ public class McpServiceImpl implements IMcpService {
                 return createSuccess(id, r);
         }
 
-        private String handleReadResource(String id, JsonObject params, String token, String sessionId) {
+        private String handleReadResource(JsonElement id, JsonObject params, String token, String sessionId) {
                 String uri = params.get("uri").getAsString();
                 if (uri.equals("idempiere://metadata/models"))
                         return McpResourceExecutor.listModels(id, token, restClient);
@@ -1128,22 +1323,30 @@ public class McpServiceImpl implements IMcpService {
                 return r;
         }
 
-        public static String createSuccess(String id, JsonObject res) {
+        public static String createSuccess(JsonElement id, JsonObject res) {
                 JsonObject o = new JsonObject();
                 o.addProperty("jsonrpc", "2.0");
-                o.addProperty("id", id);
+                o.add("id", toResponseId(id));
                 o.add("result", res);
                 return o.toString();
         }
 
-        public static String createError(String id, int code, String msg) {
+        public static String createError(JsonElement id, int code, String msg) {
                 JsonObject o = new JsonObject();
                 o.addProperty("jsonrpc", "2.0");
-                o.addProperty("id", id);
+                o.add("id", toResponseId(id));
                 JsonObject e = new JsonObject();
                 e.addProperty("code", code);
                 e.addProperty("message", msg);
                 o.add("error", e);
                 return o.toString();
         }
-}
\ No newline at end of file
+
+        /**
+         * @param id request id element, may be null
+         * @return id element of the response, the request id as-is to keep its JSON type (number or string)
+         */
+        static JsonElement toResponseId(JsonElement id) {
+                return id != null ? id : JsonNull.INSTANCE;
+        }
+}
@@ -25,6 +25,8 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -36,7 +38,7 @@ import com.google.gson.JsonObject;
 
 public class McpViewExecutor {
 
-    public static String list_views(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_views(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "List Views", () -> {
             String filter = args.has("filter") ? args.get("filter").getAsString() : "";
             String path = "/views"
@@ -46,11 +48,11 @@ public class McpViewExecutor {
         });
     }
 
-    public static String get_view_yaml(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_view_yaml(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get View YAML", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String path = "/views/" + URLEncoder.encode(viewName, StandardCharsets.UTF_8) + "/yaml";
-            String yaml = client.getYaml(path, token);
+            String yaml = McpSchemaCache.getYaml(client, path, token);
             JsonObject item = new JsonObject();
             // Use EmbeddedResource for YAML content since TextContent doesn't support mimeType
             item.addProperty("type", "resource");
@@ -67,31 +69,44 @@ public class McpViewExecutor {
         });
     }
 
-    public static String search_view_records(String id, JsonObject args, String token, RestApiClient client) {
+    public static String search_view_records(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Search View Records", () -> {
-            String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
-            String filter = args.has("filter") ? args.get("filter").getAsString() : "";
-            String sortColumn = args.has("sort_column") ? args.get("sort_column").getAsString() : "";
-            int limit = args.has("limit") ? args.get("limit").getAsInt() : 10;
-            int offset = args.has("offset") ? args.get("offset").getAsInt() : 0;
-
-            StringBuilder sb = new StringBuilder("/views/").append(URLEncoder.encode(viewName, StandardCharsets.UTF_8));
-            sb.append("?$top=").append(limit);
-            sb.append("&$skip=").append(offset);
-
-            if (!filter.isEmpty()) {
-                sb.append("&$filter=").append(URLEncoder.encode(filter, StandardCharsets.UTF_8));
-            }
-            if (!sortColumn.isEmpty()) {
-                sb.append("&$orderby=").append(URLEncoder.encode(sortColumn, StandardCharsets.UTF_8));
-            }
-
-            JsonElement response = client.get(sb.toString(), token);
-            return McpExecutorUtils.wrapJsonContent(id, response);
+            JsonElement response = client.get(searchViewPath(args), token);
+            return McpExecutorUtils.wrapJsonContent(id, response, McpResultEncoder.parseFields(args));
         });
     }
 
-    public static String create_view_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static void search_view_records(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeStreaming(id, "Search View Records", McpResultEncoder.parseFields(args), out,
+                () -> client.getStream(searchViewPath(args), token));
+    }
+
+    private static String searchViewPath(JsonObject args) {
+        String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
+        String filter = args.has("filter") ? args.get("filter").getAsString() : "";
+        String sortColumn = args.has("sort_column") ? args.get("sort_column").getAsString() : "";
+        int limit = args.has("limit") ? args.get("limit").getAsInt() : 10;
+        int offset = args.has("offset") ? args.get("offset").getAsInt() : 0;
+
+        StringBuilder sb = new StringBuilder("/views/").append(URLEncoder.encode(viewName, StandardCharsets.UTF_8));
+        sb.append("?$top=").append(limit);
+        sb.append("&$skip=").append(offset);
+
+        if (!filter.isEmpty()) {
+            sb.append("&$filter=").append(URLEncoder.encode(filter, StandardCharsets.UTF_8));
+        }
+        if (!sortColumn.isEmpty()) {
+            sb.append("&$orderby=").append(URLEncoder.encode(sortColumn, StandardCharsets.UTF_8));
+        }
+        String select = McpResultEncoder.getSelect(args);
+        if (select != null) {
+            sb.append("&$select=").append(URLEncoder.encode(select, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    public static String create_view_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Create View Record", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             JsonObject data = args.get("data").getAsJsonObject();
@@ -101,7 +116,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String get_view_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_view_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get View Record", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -111,7 +126,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String update_view_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String update_view_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Update View Record", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -122,7 +137,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String delete_view_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String delete_view_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Delete View Record", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -132,7 +147,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String get_view_record_property(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_view_record_property(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get View Record Property", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -144,7 +159,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String get_view_record_attachments(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_view_record_attachments(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get View Record Attachments", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -155,7 +170,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String add_view_record_attachment(String id, JsonObject args, String token, RestApiClient client) {
+    public static String add_view_record_attachment(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Add View Record Attachment", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -167,7 +182,7 @@ public class McpViewExecutor {
         });
     }
 
-    public static String delete_view_record_attachments(String id, JsonObject args, String token,
+    public static String delete_view_record_attachments(JsonElement id, JsonObject args, String token,
             RestApiClient client) {
         return McpExecutorUtils.execute(id, "Delete View Record Attachments", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
@@ -179,32 +194,50 @@ public class McpViewExecutor {
         });
     }
 
-    public static String get_view_record_attachments_zip(String id, JsonObject args, String token,
+    public static String get_view_record_attachments_zip(JsonElement id, JsonObject args, String token,
             RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get View Record Attachments ZIP", () -> {
-            String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
-            String recordId = args.get("id").getAsString();
-            String path = "/views/" + URLEncoder.encode(viewName, StandardCharsets.UTF_8) + "/" + recordId
-                    + "/attachments/zip";
-            byte[] response = client.getBinary(path, token, "application/zip");
+            byte[] response = client.getBinary(attachmentsZipPath(args), token, "application/zip");
             return McpExecutorUtils.wrapBinaryContent(id, response, "application/zip");
         });
     }
 
-    public static String get_view_record_attachment_by_name(String id, JsonObject args, String token,
+    public static void get_view_record_attachments_zip(JsonElement id, JsonObject args, String token,
+            RestApiClient client, OutputStream out) throws IOException {
+        McpExecutorUtils.executeBinaryStreaming(id, "Get View Record Attachments ZIP", "application/zip", out,
+                () -> client.getStream(attachmentsZipPath(args), token, "application/zip"));
+    }
+
+    private static String attachmentsZipPath(JsonObject args) {
+        String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
+        String recordId = args.get("id").getAsString();
+        return "/views/" + URLEncoder.encode(viewName, StandardCharsets.UTF_8) + "/" + recordId
+                + "/attachments/zip";
+    }
+
+    public static String get_view_record_attachment_by_name(JsonElement id, JsonObject args, String token,
             RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get View Record Attachment By Name", () -> {
-            String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
-            String recordId = args.get("id").getAsString();
-            String fileName = args.get("fileName").getAsString();
-            String path = "/views/" + URLEncoder.encode(viewName, StandardCharsets.UTF_8) + "/" + recordId
-                    + "/attachments/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
-            byte[] response = client.getBinary(path, token, "application/octet-stream");
+            byte[] response = client.getBinary(attachmentPath(args), token, "application/octet-stream");
             return McpExecutorUtils.wrapBinaryContent(id, response, "application/octet-stream");
         });
     }
 
-    public static String print_view_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_view_record_attachment_by_name(JsonElement id, JsonObject args, String token,
+            RestApiClient client, OutputStream out) throws IOException {
+        McpExecutorUtils.executeBinaryStreaming(id, "Get View Record Attachment By Name", "application/octet-stream",
+                out, () -> client.getStream(attachmentPath(args), token, "application/octet-stream"));
+    }
+
+    private static String attachmentPath(JsonObject args) {
+        String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
+        String recordId = args.get("id").getAsString();
+        String fileName = args.get("fileName").getAsString();
+        return "/views/" + URLEncoder.encode(viewName, StandardCharsets.UTF_8) + "/" + recordId
+                + "/attachments/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+    }
+
+    public static String print_view_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Print View Record", () -> {
             String viewName = McpExecutorUtils.slugify(args.get("viewName").getAsString());
             String recordId = args.get("id").getAsString();
@@ -25,6 +25,8 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -35,57 +37,77 @@ import com.google.gson.JsonObject;
 
 public class McpWindowExecutor {
 
-    public static String list_windows(String id, JsonObject args, String token, RestApiClient client) {
+    private static final String ENV_WINDOW_CACHE_TTL_MS = "MCP_WINDOW_CACHE_TTL_MS";
+    private static final String ENV_WINDOW_CACHE_MAX_ENTRIES = "MCP_WINDOW_CACHE_MAX_ENTRIES";
+    private static final long DEFAULT_WINDOW_CACHE_TTL_MS = 30 * 60 * 1000;
+    private static final long DEFAULT_WINDOW_CACHE_MAX_ENTRIES = 1000;
+
+    // window list, tabs and tab fields by path and tenant/role/language, static between dictionary changes
+    private static final McpCache<String, JsonElement> windowCache = new McpCache<>("window",
+            McpCache.getLongConfig(ENV_WINDOW_CACHE_TTL_MS, DEFAULT_WINDOW_CACHE_TTL_MS),
+            McpCache.getLongConfig(ENV_WINDOW_CACHE_MAX_ENTRIES, DEFAULT_WINDOW_CACHE_MAX_ENTRIES));
+
+    public static String list_windows(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String filter = args.has("filter") ? args.get("filter").getAsString() : "";
             String path = "/windows"
                     + (!filter.isEmpty() ? "?$filter=" + URLEncoder.encode(filter, StandardCharsets.UTF_8) : "");
-            JsonElement response = client.get(path, token);
+            JsonElement response = McpExecutorUtils.getCached(windowCache, client, path, token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         } catch (Exception e) {
             return McpExecutorUtils.wrapToolError(id, "List Windows Error: " + e.getMessage());
         }
     }
 
-    public static String get_window_tabs(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_window_tabs(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Window Tabs", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/tabs";
-            JsonElement response = client.get(path, token);
+            JsonElement response = McpExecutorUtils.getCached(windowCache, client, path, token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String get_window_tab_fields(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_window_tab_fields(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Window Tab Fields", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
             String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/tabs/"
                     + URLEncoder.encode(tabSlug, StandardCharsets.UTF_8) + "/fields";
-            JsonElement response = client.get(path, token);
+            JsonElement response = McpExecutorUtils.getCached(windowCache, client, path, token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String get_window_records(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_window_records(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Window Records", () -> {
-            String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
-            String filter = args.has("filter") ? args.get("filter").getAsString() : "";
-            String sortColumn = args.has("sort_column") ? args.get("sort_column").getAsString() : "";
-            int pageNo = args.has("page_no") ? args.get("page_no").getAsInt() : 0;
-            String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "?$page_no=" + pageNo;
-            if (!filter.isEmpty()) {
-                path += "&$filter=" + URLEncoder.encode(filter, StandardCharsets.UTF_8);
-            }
-            if (!sortColumn.isEmpty()) {
-                path += "&$sort_column=" + URLEncoder.encode(sortColumn, StandardCharsets.UTF_8);
-            }
-            JsonElement response = client.get(path, token);
-            return McpExecutorUtils.wrapJsonContent(id, response);
+            JsonElement response = client.get(windowRecordsPath(args), token);
+            return McpExecutorUtils.wrapJsonContent(id, response, McpResultEncoder.parseFields(args));
         });
     }
 
-    public static String create_window_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_window_records(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeStreaming(id, "Get Window Records", McpResultEncoder.parseFields(args), out,
+                () -> client.getStream(windowRecordsPath(args), token));
+    }
+
+    private static String windowRecordsPath(JsonObject args) {
+        String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
+        String filter = args.has("filter") ? args.get("filter").getAsString() : "";
+        String sortColumn = args.has("sort_column") ? args.get("sort_column").getAsString() : "";
+        int pageNo = args.has("page_no") ? args.get("page_no").getAsInt() : 0;
+        String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "?$page_no=" + pageNo;
+        if (!filter.isEmpty()) {
+            path += "&$filter=" + URLEncoder.encode(filter, StandardCharsets.UTF_8);
+        }
+        if (!sortColumn.isEmpty()) {
+            path += "&$sort_column=" + URLEncoder.encode(sortColumn, StandardCharsets.UTF_8);
+        }
+        return path;
+    }
+
+    public static String create_window_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Create Window Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             JsonObject data = args.get("data").getAsJsonObject();
@@ -96,21 +118,24 @@ public class McpWindowExecutor {
         });
     }
 
-    public static String get_window_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_window_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Window Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String recordId = args.get("record_id").getAsString();
             String expand = args.has("expand") ? args.get("expand").getAsString() : "";
             String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/" + recordId;
+            String updatedPath = path + "?$select=Updated";
             if (!expand.isEmpty()) {
                 path += "?$expand=" + URLEncoder.encode(expand, StandardCharsets.UTF_8);
+                // the Updated column of the header doesn't cover the expanded child records, only an ETag can
+                updatedPath = null;
             }
-            JsonElement response = client.get(path, token);
+            JsonElement response = McpRecordCache.get(client, path, updatedPath, recordId, token);
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String print_window_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String print_window_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Print Window Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String recordId = args.get("record_id").getAsString();
@@ -121,7 +146,7 @@ public class McpWindowExecutor {
         });
     }
 
-    public static String get_window_tab_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_window_tab_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Window Tab Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
@@ -133,7 +158,7 @@ public class McpWindowExecutor {
         });
     }
 
-    public static String update_window_tab_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String update_window_tab_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Update Window Tab Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
@@ -142,38 +167,59 @@ public class McpWindowExecutor {
             boolean save = args.has("save") ? args.get("save").getAsBoolean() : true;
             String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/tabs/"
                     + URLEncoder.encode(tabSlug, StandardCharsets.UTF_8) + "/" + recordId + "?$save=" + save;
-            JsonElement response = client.put(path, data, token);
+            JsonElement response;
+            try {
+                response = client.put(path, data, token);
+            } finally {
+                // also after a failure, the write may have been applied
+                McpRecordCache.invalidate(recordId);
+            }
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String delete_window_tab_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static String delete_window_tab_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Delete Window Tab Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
             String recordId = args.get("record_id").getAsString();
             String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/tabs/"
                     + URLEncoder.encode(tabSlug, StandardCharsets.UTF_8) + "/" + recordId;
-            JsonElement response = client.delete(path, token);
+            JsonElement response;
+            try {
+                response = client.delete(path, token);
+            } finally {
+                // also after a failure, the write may have been applied
+                McpRecordCache.invalidate(recordId);
+            }
             return McpExecutorUtils.wrapJsonContent(id, response);
         });
     }
 
-    public static String get_child_tab_records(String id, JsonObject args, String token, RestApiClient client) {
+    public static String get_child_tab_records(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Get Child Tab Records", () -> {
-            String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
-            String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
-            String recordId = args.get("record_id").getAsString();
-            String childTabSlug = McpExecutorUtils.slugify(args.get("child_tab_name").getAsString());
-            String path = "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/tabs/"
-                    + URLEncoder.encode(tabSlug, StandardCharsets.UTF_8) + "/" + recordId + "/"
-                    + URLEncoder.encode(childTabSlug, StandardCharsets.UTF_8);
-            JsonElement response = client.get(path, token);
-            return McpExecutorUtils.wrapJsonContent(id, response);
+            JsonElement response = client.get(childTabRecordsPath(args), token);
+            return McpExecutorUtils.wrapJsonContent(id, response, McpResultEncoder.parseFields(args));
         });
     }
 
-    public static String create_child_tab_record(String id, JsonObject args, String token, RestApiClient client) {
+    public static void get_child_tab_records(JsonElement id, JsonObject args, String token, RestApiClient client,
+            OutputStream out) throws IOException {
+        McpExecutorUtils.executeStreaming(id, "Get Child Tab Records", McpResultEncoder.parseFields(args), out,
+                () -> client.getStream(childTabRecordsPath(args), token));
+    }
+
+    private static String childTabRecordsPath(JsonObject args) {
+        String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
+        String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
+        String recordId = args.get("record_id").getAsString();
+        String childTabSlug = McpExecutorUtils.slugify(args.get("child_tab_name").getAsString());
+        return "/windows/" + URLEncoder.encode(windowSlug, StandardCharsets.UTF_8) + "/tabs/"
+                + URLEncoder.encode(tabSlug, StandardCharsets.UTF_8) + "/" + recordId + "/"
+                + URLEncoder.encode(childTabSlug, StandardCharsets.UTF_8);
+    }
+
+    public static String create_child_tab_record(JsonElement id, JsonObject args, String token, RestApiClient client) {
         return McpExecutorUtils.execute(id, "Create Child Tab Record", () -> {
             String windowSlug = McpExecutorUtils.slugify(args.get("window_name").getAsString());
             String tabSlug = McpExecutorUtils.slugify(args.get("tab_name").getAsString());
@@ -35,7 +35,7 @@ import com.google.gson.JsonObject;
 
 public class McpWorkflowExecutor {
 
-    public static String list_workflow_activities(String id, JsonObject args, String token, RestApiClient client) {
+    public static String list_workflow_activities(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String userId = args.has("userId") ? args.get("userId").getAsString() : "";
             String path = "/workflow"
@@ -47,7 +47,7 @@ public class McpWorkflowExecutor {
         }
     }
 
-    public static String approve_workflow_activity(String id, JsonObject args, String token, RestApiClient client) {
+    public static String approve_workflow_activity(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String activityId = args.get("id").getAsString();
             String path = "/workflow/approve/" + URLEncoder.encode(activityId, StandardCharsets.UTF_8);
@@ -62,7 +62,7 @@ public class McpWorkflowExecutor {
         }
     }
 
-    public static String reject_workflow_activity(String id, JsonObject args, String token, RestApiClient client) {
+    public static String reject_workflow_activity(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String activityId = args.get("id").getAsString();
             String path = "/workflow/reject/" + URLEncoder.encode(activityId, StandardCharsets.UTF_8);
@@ -77,7 +77,7 @@ public class McpWorkflowExecutor {
         }
     }
 
-    public static String forward_workflow_activity(String id, JsonObject args, String token, RestApiClient client) {
+    public static String forward_workflow_activity(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String activityId = args.get("id").getAsString();
             String path = "/workflow/forward/" + URLEncoder.encode(activityId, StandardCharsets.UTF_8);
@@ -93,7 +93,7 @@ public class McpWorkflowExecutor {
         }
     }
 
-    public static String acknowledge_workflow_activity(String id, JsonObject args, String token, RestApiClient client) {
+    public static String acknowledge_workflow_activity(JsonElement id, JsonObject args, String token, RestApiClient client) {
         try {
             String activityId = args.get("id").getAsString();
             String path = "/workflow/acknowledge/" + URLEncoder.encode(activityId, StandardCharsets.UTF_8);
@@ -108,7 +108,7 @@ public class McpWorkflowExecutor {
         }
     }
 
-    public static String set_workflow_activity_user_choice(String id, JsonObject args, String token,
+    public static String set_workflow_activity_user_choice(JsonElement id, JsonObject args, String token,
             RestApiClient client) {
         try {
             String activityId = args.get("id").getAsString();
@@ -25,9 +25,10 @@
 **********************************************************************/
 package org.idempiere.mcp.server.core;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 @FunctionalInterface
 public interface ToolHandler {
-    String handle(String id, JsonObject params, String token, String sessionId);
+    String handle(JsonElement id, JsonObject params, String token, String sessionId);
 }
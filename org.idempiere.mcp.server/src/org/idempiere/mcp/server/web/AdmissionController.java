@@ -0,0 +1,320 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+
+/**
+ * Admission control for MCP requests in front of the request executor.
+ * <p>
+ * At most {@code maxInFlight} requests are handed to the executor at a time. Requests above that limit wait in a
+ * bounded FIFO queue and are dispatched as running requests complete. A session may not have more than
+ * {@code maxInFlightPerSession} requests running or waiting, a JSON-RPC batch counting as one request of the
+ * session whatever its size. Requests over either limit are rejected right away,
+ * so callers can answer with a fast "server busy" instead of letting latency grow for everyone.
+ * <p>
+ * A request the executor rejects after it was admitted (executor shut down while the request waited) doesn't
+ * run, its rejection callback is run instead so the caller can answer and complete the request.
+ */
+class AdmissionController {
+
+	private static final CLogger log = CLogger.getCLogger(AdmissionController.class);
+
+	private final Executor executor;
+	private final int maxInFlight;
+	private final int maxInFlightPerSession;
+	private final int maxQueued;
+
+	/** guarded by this */
+	private final Queue<Admitted> waiting = new ArrayDeque<>();
+	/** guarded by this */
+	private int inFlight = 0;
+
+	private final AtomicLong admittedTotal = new AtomicLong();
+	private final AtomicLong queuedTotal = new AtomicLong();
+	private final AtomicLong rejectedTotal = new AtomicLong();
+	private final AtomicLong rejectedSessionLimitTotal = new AtomicLong();
+
+	/**
+	 * Admitted request, holds its share of a per-session slot until it has run or has been rejected
+	 */
+	private final class Admitted implements BoundedExecutorService.RejectableTask {
+		private final Runnable task;
+		private final Runnable onRejected;
+		private final Runnable done;
+
+		/**
+		 * @param task
+		 * @param onRejected
+		 * @param done       releases the share of the session slot
+		 */
+		private Admitted(Runnable task, Runnable onRejected, Runnable done) {
+			this.task = task;
+			this.onRejected = onRejected;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} finally {
+				done.run();
+				release();
+			}
+		}
+
+		/**
+		 * Rejected by the executor after it was handed over, gives up the slot it was running in
+		 */
+		@Override
+		public void reject(RejectedExecutionException e) {
+			fail();
+			release();
+		}
+
+		/**
+		 * Give up the request without running it
+		 */
+		private void fail() {
+			rejectedTotal.incrementAndGet();
+			try {
+				onRejected.run();
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "Failed to answer rejected MCP request", e);
+			} finally {
+				done.run();
+			}
+		}
+	}
+
+	/**
+	 * Members of one JSON-RPC batch. The batch holds a single per-session slot, released when the batch is
+	 * closed and its last member has completed. Each member still takes its own place in the global limit.
+	 */
+	final class Batch {
+		private final McpSession session;
+		// one for the open batch plus one per member not completed
+		private final AtomicInteger pending = new AtomicInteger(1);
+
+		private Batch(McpSession session) {
+			this.session = session;
+		}
+
+		/**
+		 * Run a member of the batch, now or once capacity frees up.
+		 * @param task
+		 * @param onRejected run instead of task if the executor rejects the member after it was admitted
+		 * @return false if the member is rejected because the server is busy
+		 * @throws RejectedExecutionException if the executor rejects the member (shutting down)
+		 */
+		boolean submit(Runnable task, Runnable onRejected) {
+			pending.incrementAndGet();
+			boolean admitted;
+			try {
+				admitted = dispatch(new Admitted(task, onRejected, this::done));
+			} catch (RejectedExecutionException e) {
+				done();
+				throw e;
+			}
+			if (!admitted)
+				done();
+			return admitted;
+		}
+
+		/**
+		 * Call once all members have been submitted
+		 */
+		void close() {
+			done();
+		}
+
+		private void done() {
+			if (pending.decrementAndGet() == 0)
+				session.releaseInFlight();
+		}
+	}
+
+	/**
+	 * @param executor              executor running the admitted requests
+	 * @param maxInFlight           maximum number of requests handed to the executor
+	 * @param maxInFlightPerSession maximum number of running or waiting requests per session
+	 * @param maxQueued             maximum number of requests waiting for admission
+	 */
+	AdmissionController(Executor executor, int maxInFlight, int maxInFlightPerSession, int maxQueued) {
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.maxInFlightPerSession = maxInFlightPerSession;
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * Run a request of a session, now or once capacity frees up.
+	 * @param session
+	 * @param task
+	 * @param onRejected run instead of task if the executor rejects the request after it was admitted
+	 * @return false if the request is rejected because the server or the session is busy
+	 * @throws RejectedExecutionException if the executor rejects the request (shutting down)
+	 */
+	boolean submit(McpSession session, Runnable task, Runnable onRejected) {
+		if (!acquireSession(session))
+			return false;
+		boolean admitted;
+		try {
+			admitted = dispatch(new Admitted(task, onRejected, session::releaseInFlight));
+		} catch (RejectedExecutionException e) {
+			session.releaseInFlight();
+			throw e;
+		}
+		if (!admitted)
+			session.releaseInFlight();
+		return admitted;
+	}
+
+	/**
+	 * Admit a JSON-RPC batch as one request of the session
+	 * @param session
+	 * @return batch to submit the members to, null if the session is busy
+	 */
+	Batch openBatch(McpSession session) {
+		return acquireSession(session) ? new Batch(session) : null;
+	}
+
+	private boolean acquireSession(McpSession session) {
+		if (session.tryAcquireInFlight(maxInFlightPerSession))
+			return true;
+		rejectedSessionLimitTotal.incrementAndGet();
+		rejectedTotal.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Hand a request to the executor if there is a free slot, otherwise queue it
+	 * @param admitted
+	 * @return false if the queue is full
+	 * @throws RejectedExecutionException if the executor rejects the request
+	 */
+	private boolean dispatch(Admitted admitted) {
+		synchronized (this) {
+			if (inFlight >= maxInFlight) {
+				if (waiting.size() >= maxQueued) {
+					rejectedTotal.incrementAndGet();
+					return false;
+				}
+				waiting.add(admitted);
+				queuedTotal.incrementAndGet();
+				return true;
+			}
+			inFlight++;
+		}
+		try {
+			executor.execute(admitted);
+		} catch (RejectedExecutionException e) {
+			synchronized (this) {
+				inFlight--;
+			}
+			throw e;
+		}
+		admittedTotal.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Hand the slot of a completed request to the next waiting request, or free it
+	 */
+	private void release() {
+		Admitted next;
+		synchronized (this) {
+			next = waiting.poll();
+			if (next == null) {
+				inFlight--;
+				return;
+			}
+		}
+		try {
+			executor.execute(next);
+			admittedTotal.incrementAndGet();
+		} catch (RejectedExecutionException e) {
+			// executor shut down, none of the waiting requests can run anymore
+			log.log(Level.WARNING, "Waiting MCP requests rejected by executor", e);
+			List<Admitted> rejected = new ArrayList<>();
+			rejected.add(next);
+			synchronized (this) {
+				rejected.addAll(waiting);
+				waiting.clear();
+				inFlight--;
+			}
+			for (Admitted admitted : rejected)
+				admitted.fail();
+		}
+	}
+
+	synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	synchronized int getQueued() {
+		return waiting.size();
+	}
+
+	int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	int getMaxInFlightPerSession() {
+		return maxInFlightPerSession;
+	}
+
+	int getMaxQueued() {
+		return maxQueued;
+	}
+
+	long getAdmittedTotal() {
+		return admittedTotal.get();
+	}
+
+	long getQueuedTotal() {
+		return queuedTotal.get();
+	}
+
+	long getRejectedTotal() {
+		return rejectedTotal.get();
+	}
+
+	long getRejectedSessionLimitTotal() {
+		return rejectedSessionLimitTotal.get();
+	}
+}
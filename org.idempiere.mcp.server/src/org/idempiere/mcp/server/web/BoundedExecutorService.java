@@ -0,0 +1,163 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+
+/**
+ * Executor that caps the number of concurrently running tasks of a thread-per-task delegate with a semaphore.
+ * <p>
+ * Used with virtual threads: every submitted task gets its own (cheap) virtual thread, which parks on the
+ * semaphore until a permit is free, so callers never block and the backend never sees more than
+ * {@code maxConcurrency} calls at once.
+ * <p>
+ * A task whose thread is interrupted while waiting for a permit (shutdownNow) is rejected: it doesn't run, a
+ * {@link RejectableTask} is told so it can release what it holds, and a {@link Future} is cancelled.
+ */
+class BoundedExecutorService extends AbstractExecutorService {
+
+	private static final CLogger log = CLogger.getCLogger(BoundedExecutorService.class);
+
+	private final ExecutorService delegate;
+	private final Semaphore permits;
+	private final int maxConcurrency;
+
+	/**
+	 * Task that must be told when it is rejected after {@link #execute(Runnable)} returned
+	 */
+	interface RejectableTask extends Runnable {
+
+		/**
+		 * Called instead of {@link #run()} on the thread of the task
+		 * @param e
+		 */
+		void reject(RejectedExecutionException e);
+	}
+
+	/**
+	 * @param delegate       thread-per-task executor
+	 * @param maxConcurrency maximum number of tasks running at the same time
+	 */
+	BoundedExecutorService(ExecutorService delegate, int maxConcurrency) {
+		this.delegate = delegate;
+		this.maxConcurrency = maxConcurrency;
+		this.permits = new Semaphore(maxConcurrency, true);
+	}
+
+	/**
+	 * Create a virtual thread per task executor when running on JDK 21+.
+	 * Resolved reflectively as the bundle is compiled against JDK 17.
+	 * @return virtual thread executor or null if not supported by the running JVM
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (Exception e) {
+			log.log(Level.WARNING, "Failed to create virtual thread executor", e);
+			return null;
+		}
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		delegate.execute(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				RejectedExecutionException rejected = new RejectedExecutionException(
+						"Interrupted while waiting for a permit", e);
+				if (command instanceof RejectableTask)
+					((RejectableTask) command).reject(rejected);
+				else if (command instanceof Future)
+					((Future<?>) command).cancel(false);
+				throw rejected;
+			}
+			try {
+				command.run();
+			} finally {
+				permits.release();
+			}
+		});
+	}
+
+	/**
+	 * @return number of tasks currently holding a permit
+	 */
+	int getActiveCount() {
+		return maxConcurrency - permits.availablePermits();
+	}
+
+	/**
+	 * @return estimated number of tasks waiting for a permit
+	 */
+	int getWaitingCount() {
+		return permits.getQueueLength();
+	}
+
+	int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+}
@@ -0,0 +1,163 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+
+/**
+ * Hashed timing wheel for session expiry and heartbeats.
+ * <p>
+ * The wheel has no thread of its own, {@link #tick()} must be called every {@code tickMs} by a single
+ * scheduler thread. Each tick only visits the timeouts hashed into the current bucket, so the cost is
+ * proportional to the number of timeouts due rather than the number of timeouts pending. Tasks run on
+ * the ticking thread and must be short and non-blocking.
+ */
+class HashedWheelTimer {
+
+	private static final CLogger log = CLogger.getCLogger(HashedWheelTimer.class);
+
+	private final long tickMs;
+	private final Queue<Timeout>[] wheel;
+	private final int mask;
+	/** timeouts scheduled since the last tick, moved into the wheel by the ticking thread */
+	private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	/** only accessed by the ticking thread */
+	private long currentTick = 0;
+
+	/**
+	 * Handle of a scheduled task
+	 */
+	final class Timeout {
+		private final Runnable task;
+		private final long delayMs;
+		private long remainingRounds;
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long delayMs) {
+			this.task = task;
+			this.delayMs = delayMs;
+		}
+
+		/**
+		 * Cancel the task, it is removed from the wheel when its bucket is next visited
+		 */
+		void cancel() {
+			cancelled = true;
+		}
+
+		boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * @param tickMs    duration of one tick in milliseconds
+	 * @param wheelSize number of buckets, rounded up to a power of two
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	HashedWheelTimer(long tickMs, int wheelSize) {
+		this.tickMs = tickMs;
+		int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+		this.wheel = new Queue[size];
+		for (int i = 0; i < size; i++)
+			wheel[i] = new ArrayDeque<>();
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Schedule a one-shot task
+	 * @param task
+	 * @param delayMs delay in milliseconds, rounded up to the tick duration
+	 * @return timeout handle
+	 */
+	Timeout schedule(Runnable task, long delayMs) {
+		Timeout timeout = new Timeout(task, Math.max(delayMs, 0));
+		pendingCount.incrementAndGet();
+		incoming.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Advance the wheel by one tick and run the tasks that are due
+	 */
+	void tick() {
+		transferIncoming();
+		Queue<Timeout> bucket = wheel[(int) (currentTick & mask)];
+		Iterator<Timeout> it = bucket.iterator();
+		while (it.hasNext()) {
+			Timeout timeout = it.next();
+			if (timeout.cancelled) {
+				it.remove();
+				pendingCount.decrementAndGet();
+			} else if (timeout.remainingRounds > 0) {
+				timeout.remainingRounds--;
+			} else {
+				it.remove();
+				pendingCount.decrementAndGet();
+				try {
+					timeout.task.run();
+				} catch (Exception e) {
+					log.log(Level.WARNING, "Timer task failed", e);
+				}
+			}
+		}
+		currentTick++;
+	}
+
+	private void transferIncoming() {
+		Timeout timeout;
+		while ((timeout = incoming.poll()) != null) {
+			if (timeout.cancelled) {
+				pendingCount.decrementAndGet();
+				continue;
+			}
+			// the current bucket is processed right after this transfer, so a timeout placed ticks ahead of
+			// it never fires early
+			long ticks = (timeout.delayMs + tickMs - 1) / tickMs;
+			timeout.remainingRounds = ticks / wheel.length;
+			wheel[(int) ((currentTick + ticks) & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * @return number of scheduled tasks not yet run or removed
+	 */
+	int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	long getTickMs() {
+		return tickMs;
+	}
+}
@@ -0,0 +1,155 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.adempiere.base.Service;
+import org.compiere.util.CLogger;
+import org.idempiere.mcp.server.api.IMcpService;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+
+/**
+ * Tracks the {@link IMcpService} registration so the servlet doesn't have to query the service registry for
+ * every JSON-RPC message.
+ * <p>
+ * The tracker follows service replacement (unregister/register or a higher ranked service) and records how long
+ * no service was available. Falls back to the iDempiere service locator if the tracker couldn't be opened.
+ */
+class McpServiceTracker extends ServiceTracker<IMcpService, IMcpService> {
+
+	private static final CLogger log = CLogger.getCLogger(McpServiceTracker.class);
+
+	/** time a lookup first found no service, 0 while available */
+	private final AtomicLong unavailableSince = new AtomicLong();
+	private final AtomicLong unavailableCount = new AtomicLong();
+	private final AtomicLong totalUnavailableMs = new AtomicLong();
+	private final AtomicLong serviceChangeCount = new AtomicLong();
+
+	private McpServiceTracker(BundleContext context) {
+		super(context, IMcpService.class, null);
+	}
+
+	/**
+	 * Create and open a tracker with the bundle context of the bundle loading clazz
+	 * @param clazz
+	 * @return opened tracker or null if not running in an OSGi framework
+	 */
+	static McpServiceTracker open(Class<?> clazz) {
+		Bundle bundle = FrameworkUtil.getBundle(clazz);
+		BundleContext context = bundle != null ? bundle.getBundleContext() : null;
+		if (context == null) {
+			log.warning("No bundle context, IMcpService will be looked up per request");
+			return null;
+		}
+		McpServiceTracker tracker = new McpServiceTracker(context);
+		tracker.open();
+		return tracker;
+	}
+
+	/**
+	 * @param tracker tracker or null
+	 * @return current service or null if not available
+	 */
+	static IMcpService getService(McpServiceTracker tracker) {
+		if (tracker != null) {
+			IMcpService service = tracker.getService();
+			if (service == null && tracker.unavailableSince.compareAndSet(0, System.currentTimeMillis())) {
+				tracker.unavailableCount.incrementAndGet();
+				log.warning("IMcpService not available");
+			}
+			return service;
+		}
+		return Service.locator().locate(IMcpService.class).getService();
+	}
+
+	@Override
+	public IMcpService addingService(ServiceReference<IMcpService> reference) {
+		IMcpService service = super.addingService(reference);
+		if (service != null) {
+			serviceChangeCount.incrementAndGet();
+			long since = unavailableSince.getAndSet(0);
+			if (since > 0) {
+				long duration = System.currentTimeMillis() - since;
+				totalUnavailableMs.addAndGet(duration);
+				if (log.isLoggable(Level.INFO))
+					log.info("IMcpService available after " + duration + " ms");
+			}
+		}
+		return service;
+	}
+
+	@Override
+	public void modifiedService(ServiceReference<IMcpService> reference, IMcpService service) {
+		// ranking may have changed, getService() picks up the new best service
+		serviceChangeCount.incrementAndGet();
+	}
+
+	@Override
+	public void removedService(ServiceReference<IMcpService> reference, IMcpService service) {
+		super.removedService(reference, service);
+		serviceChangeCount.incrementAndGet();
+		// the removed service is no longer tracked at this point
+		if (size() == 0 && unavailableSince.compareAndSet(0, System.currentTimeMillis())) {
+			unavailableCount.incrementAndGet();
+			log.warning("IMcpService unregistered, no service available");
+		}
+	}
+
+	/**
+	 * @return true if a service is currently tracked
+	 */
+	boolean isAvailable() {
+		return size() > 0;
+	}
+
+	/**
+	 * @return number of times the service went away
+	 */
+	long getUnavailableCount() {
+		return unavailableCount.get();
+	}
+
+	/**
+	 * @return total time in milliseconds without service, including the current outage
+	 */
+	long getTotalUnavailableMs() {
+		long since = unavailableSince.get();
+		return totalUnavailableMs.get() + (since > 0 ? System.currentTimeMillis() - since : 0);
+	}
+
+	/**
+	 * @return number of service registration changes seen
+	 */
+	long getServiceChangeCount() {
+		return serviceChangeCount.get();
+	}
+}
@@ -25,34 +25,51 @@
 **********************************************************************/
 package org.idempiere.mcp.server.web;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Enumeration;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.AsyncContext;
 import javax.servlet.AsyncEvent;
 import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
-import javax.servlet.ServletResponse;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.adempiere.base.Service;
 import org.compiere.util.CLogger;
 import org.compiere.util.Util;
 import org.idempiere.mcp.server.api.IMcpService;
+import org.idempiere.mcp.server.client.RestTransport;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceRegistration;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -68,6 +85,12 @@ public class McpServlet extends HttpServlet {
 
 	private static final String TEXT_EVENT_STREAM_CONTENT_TYPE = "text/event-stream";
 
+	private static final int SC_TOO_MANY_REQUESTS = 429;
+
+	private static final int SERVER_BUSY_ERROR_CODE = -32000;
+
+	private static final String SERVER_BUSY_MESSAGE = "Server busy, retry later";
+
 	private static final long serialVersionUID = 1L;
 
 	private static final String HEADER_AUTHORIZATION = "Authorization";
@@ -76,37 +99,81 @@ public class McpServlet extends HttpServlet {
 	private static final String STREAMING_SESSION_HEADER = "Mcp-Session-Id";
 
 	private static final String MCP_PROTOCOL_VERSION_HEADER = "Mcp-Protocol-Version";
+	/** request attribute of a direct response to abort, see {@link #completeDirectResponse} */
+	private static final String ABORT_RESPONSE_ATTRIBUTE = McpServlet.class.getName() + ".abortResponse";
 	private static final String DEFAULT_MCP_PROTOCOL_VERSION = "2024-11-05";
 	private static final long DEFAULT_STREAMING_SESSION_TTL_MS = TimeUnit.MINUTES.toMillis(30);
-	private static final long DEFAULT_CLEANUP_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+	private static final long DEFAULT_HEARTBEAT_INTERVAL_MS = TimeUnit.SECONDS.toMillis(15);
+	// Session timer wheel: 1s resolution, one round covers ~8.5 minutes
+	private static final long TIMER_TICK_MS = TimeUnit.SECONDS.toMillis(1);
+	private static final int TIMER_WHEEL_SIZE = 512;
+	private static final int DEFAULT_SSE_MAX_QUEUED_EVENTS = 1000;
+	private static final long DEFAULT_SSE_STALL_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+	private static final int DEFAULT_VIRTUAL_THREAD_MAX_CONCURRENCY = 1000;
+	private static final int DEFAULT_MAX_IN_FLIGHT_PER_SESSION = 32;
+	private static final int DEFAULT_MAX_QUEUED_REQUESTS = 1000;
+	private static final int DEFAULT_BUSY_RETRY_AFTER_SECONDS = 1;
+	private static final long DEFAULT_TOKEN_RENEW_BEFORE_MS = TimeUnit.MINUTES.toMillis(1);
+	private static final long DEFAULT_TOKEN_RENEW_JITTER_MS = TimeUnit.SECONDS.toMillis(30);
+	private static final int DEFAULT_GZIP_MIN_SIZE = 1024;
+	private static final int GZIP_BUFFER_SIZE = 8192;
+	// re-check interval for sessions without a renewable token, and retry delay after a failed renewal
+	private static final long TOKEN_RENEW_RETRY_MS = TimeUnit.SECONDS.toMillis(30);
+	// Request executor modes
+	private static final String EXECUTOR_MODE_AUTO = "auto";
+	private static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+	private static final String EXECUTOR_MODE_FIXED = "fixed";
 	// Environment variable names
 	private static final String ENV_MCP_PROTOCOL_VERSION = "MCP_PROTOCOL_VERSION";
 	private static final String ENV_STREAMING_SESSION_TTL_MIN = "MCP_STREAMING_SESSION_TTL_MINUTES";
 	private static final String ENV_STREAMING_SESSION_TTL_MS = "MCP_STREAMING_SESSION_TTL_MS";
-	private static final String ENV_CLEANUP_INTERVAL_MIN = "MCP_CLEANUP_INTERVAL_MINUTES";
-	private static final String ENV_CLEANUP_INTERVAL_MS = "MCP_CLEANUP_INTERVAL_MS";
 	private static final String ENV_HEARTBEAT_INTERVAL_MS = "MCP_HEARTBEAT_INTERVAL_MS";
 	private static final String ENV_MCP_CORS_ORIGIN = "MCP_CORS_ORIGIN";
 	private static final String ENV_THREAD_POOL_SIZE = "MCP_THREAD_POOL_SIZE";
+	private static final String ENV_SSE_MAX_QUEUED_EVENTS = "MCP_SSE_MAX_QUEUED_EVENTS";
+	private static final String ENV_SSE_STALL_TIMEOUT_MS = "MCP_SSE_STALL_TIMEOUT_MS";
+	private static final String ENV_EXECUTOR_MODE = "MCP_EXECUTOR_MODE";
+	private static final String ENV_VIRTUAL_THREAD_MAX_CONCURRENCY = "MCP_VIRTUAL_THREAD_MAX_CONCURRENCY";
+	private static final String ENV_MAX_IN_FLIGHT = "MCP_MAX_IN_FLIGHT";
+	private static final String ENV_MAX_IN_FLIGHT_PER_SESSION = "MCP_MAX_IN_FLIGHT_PER_SESSION";
+	private static final String ENV_MAX_QUEUED_REQUESTS = "MCP_MAX_QUEUED_REQUESTS";
+	private static final String ENV_BUSY_RETRY_AFTER_SECONDS = "MCP_BUSY_RETRY_AFTER_SECONDS";
+	private static final String ENV_TOKEN_RENEW_BEFORE_MS = "MCP_TOKEN_RENEW_BEFORE_MS";
+	private static final String ENV_TOKEN_RENEW_JITTER_MS = "MCP_TOKEN_RENEW_JITTER_MS";
+	private static final String ENV_GZIP_ENABLED = "MCP_GZIP_ENABLED";
+	private static final String ENV_GZIP_MIN_SIZE = "MCP_GZIP_MIN_SIZE";
+	private static final String ENV_REST_IN_PROCESS = "MCP_REST_IN_PROCESS";
 	// Configurable values
 	private String protocolVersion = DEFAULT_MCP_PROTOCOL_VERSION;
 	private long streamingSessionTtlMs = DEFAULT_STREAMING_SESSION_TTL_MS;
-	private long cleanupIntervalMs = DEFAULT_CLEANUP_INTERVAL_MS;
-	private long heartbeatIntervalMs = 15000; // Default 15s heartbeat
+	private long heartbeatIntervalMs = DEFAULT_HEARTBEAT_INTERVAL_MS; // 0 or negative to disable
 	private String corsOrigin = "*";
 	private int threadPoolSize = 100;
+	private int sseMaxQueuedEvents = DEFAULT_SSE_MAX_QUEUED_EVENTS;
+	private long sseStallTimeoutMs = DEFAULT_SSE_STALL_TIMEOUT_MS;
+	private String executorMode = EXECUTOR_MODE_AUTO;
+	private int virtualThreadMaxConcurrency = DEFAULT_VIRTUAL_THREAD_MAX_CONCURRENCY;
+	private int maxInFlight = 0; // 0 to use the concurrency of the request executor
+	private int maxInFlightPerSession = DEFAULT_MAX_IN_FLIGHT_PER_SESSION;
+	private int maxQueuedRequests = DEFAULT_MAX_QUEUED_REQUESTS;
+	private int busyRetryAfterSeconds = DEFAULT_BUSY_RETRY_AFTER_SECONDS;
+	private long tokenRenewBeforeMs = DEFAULT_TOKEN_RENEW_BEFORE_MS; // 0 or negative to disable
+	private long tokenRenewJitterMs = DEFAULT_TOKEN_RENEW_JITTER_MS;
+	private boolean gzipEnabled = true;
+	private int gzipMinSize = DEFAULT_GZIP_MIN_SIZE; // direct responses below this size are sent uncompressed
+	private boolean restInProcess = true; // dispatch REST calls of direct responses to the REST API context in-process
 	private static final CLogger log = CLogger.getCLogger(McpServlet.class);
 
 	private ExecutorService requestExecutor;
+	// executor mode actually in use, virtual or fixed
+	private String activeExecutorMode;
+	// limits the requests handed to the request executor
+	private AdmissionController admission;
 
-	// Store active SSE sessions: SessionID -> AsyncContext
-	private static final Map<String, AsyncContext> sessions = new ConcurrentHashMap<>();
-	// Store active sessions: SessionID -> TokenInfo (token + refresh token + cached JWT claims)
-	private static final Map<String, TokenInfo> tokenInfos = new ConcurrentHashMap<>();
+	// Store active sessions: SessionID -> session state (token, SSE stream, last access, counters)
+	private static final Map<String, McpSession> sessions = new ConcurrentHashMap<>();
 	// Track current sessionId in thread local
 	private static final ThreadLocal<String> currentSessionId = new ThreadLocal<>();
-	// Track last access for sessions
-	private static final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
 
 	/**
 	 * Holds token, refresh token, and cached JWT claims for a session.
@@ -118,6 +185,8 @@ public class McpServlet extends HttpServlet {
 		private final long expSeconds;
 		private final Integer clientId;
 		private final Integer userId;
+		private final Integer roleId;
+		private final String language;
 
 		public TokenInfo(String token, String refreshToken) {
 			this.token = token;
@@ -126,6 +195,8 @@ public class McpServlet extends HttpServlet {
 			long parsedExp = 0;
 			Integer parsedClientId = null;
 			Integer parsedUserId = null;
+			Integer parsedRoleId = null;
+			String parsedLanguage = null;
 			if (token != null) {
 				try {
 					String[] parts = token.split("\\.");
@@ -141,6 +212,13 @@ public class McpServlet extends HttpServlet {
 						if (json.has("userId") && !json.get("userId").isJsonNull()) {
 							parsedUserId = json.get("userId").getAsInt();
 						}
+						// claim names of the iDempiere REST API login claims
+						if (json.has("AD_Role_ID") && !json.get("AD_Role_ID").isJsonNull()) {
+							parsedRoleId = json.get("AD_Role_ID").getAsInt();
+						}
+						if (json.has("AD_Language") && !json.get("AD_Language").isJsonNull()) {
+							parsedLanguage = json.get("AD_Language").getAsString();
+						}
 					}
 				} catch (Exception e) {
 					// ignore parse errors, keep defaults
@@ -149,6 +227,8 @@ public class McpServlet extends HttpServlet {
 			this.expSeconds = parsedExp;
 			this.clientId = parsedClientId;
 			this.userId = parsedUserId;
+			this.roleId = parsedRoleId;
+			this.language = parsedLanguage;
 		}
 
 		public String getToken() { return token; }
@@ -156,6 +236,8 @@ public class McpServlet extends HttpServlet {
 		public long getExpSeconds() { return expSeconds; }
 		public Integer getClientId() { return clientId; }
 		public Integer getUserId() { return userId; }
+		public Integer getRoleId() { return roleId; }
+		public String getLanguage() { return language; }
 
 		/**
 		 * Check if the token is expired (with a 10-second buffer)
@@ -167,36 +249,101 @@ public class McpServlet extends HttpServlet {
 		}
 	}
 
-	private ScheduledExecutorService cleanupScheduler;
-	private static long cleanedSessionsCount = 0; // metrics: total expired sessions cleaned
+	// Drives the session timer wheel (expiry and SSE heartbeats)
+	private ScheduledExecutorService timerScheduler;
+	private HashedWheelTimer sessionTimer;
+	private static final AtomicLong cleanedSessionsCount = new AtomicLong(); // metrics: total expired sessions cleaned
+	private static final AtomicLong tokenRenewalCount = new AtomicLong(); // metrics: background token renewals
+	private static final AtomicLong tokenRenewalFailureCount = new AtomicLong(); // metrics: failed background token renewals
+	private static final AtomicLong gzipResponseCount = new AtomicLong(); // metrics: gzip encoded direct responses
+	private static final AtomicLong gzipStreamCount = new AtomicLong(); // metrics: gzip encoded SSE streams
+	// Tracks the IMcpService registration, null if not running in an OSGi framework
+	private McpServiceTracker serviceTracker;
+	// in-process transport used by the REST API client, null if disabled or not running in an OSGi framework
+	private ServiceRegistration<RestTransport> restTransportRegistration;
 
 	@Override
 	public void init() throws ServletException {
 		super.init();
 		// load configuration from environment variables
 		loadConfigFromEnv();
-		// start background cleanup
-		cleanupScheduler = Executors.newSingleThreadScheduledExecutor();
-		cleanupScheduler.scheduleAtFixedRate(this::cleanupSessions, cleanupIntervalMs, cleanupIntervalMs,
-				TimeUnit.MILLISECONDS);
-		requestExecutor = Executors.newFixedThreadPool(threadPoolSize);
+		// start session timer for expiry and heartbeats
+		sessionTimer = new HashedWheelTimer(TIMER_TICK_MS, TIMER_WHEEL_SIZE);
+		timerScheduler = Executors.newSingleThreadScheduledExecutor();
+		timerScheduler.scheduleAtFixedRate(sessionTimer::tick, TIMER_TICK_MS, TIMER_TICK_MS, TimeUnit.MILLISECONDS);
+		requestExecutor = createRequestExecutor();
+		if (maxInFlight < 1)
+			maxInFlight = EXECUTOR_MODE_VIRTUAL.equals(activeExecutorMode) ? virtualThreadMaxConcurrency : threadPoolSize;
+		admission = new AdmissionController(requestExecutor, maxInFlight, maxInFlightPerSession, maxQueuedRequests);
+		serviceTracker = McpServiceTracker.open(McpServlet.class);
+		if (restInProcess)
+			registerRestTransport();
 		if (log.isLoggable(Level.INFO))
-			log.info("MCP Servlet initialized. Session cleanup scheduled every " + cleanupIntervalMs
+			log.info("MCP Servlet initialized. Session timer tick " + TIMER_TICK_MS
 				+ " ms, Heartbeat every " + heartbeatIntervalMs + " ms, TTL=" + streamingSessionTtlMs + " ms, protocol="
-				+ protocolVersion + ", threadPool=" + threadPoolSize);
+				+ protocolVersion + ", executor=" + activeExecutorMode + ", threadPool=" + threadPoolSize
+				+ ", virtualThreadMaxConcurrency=" + virtualThreadMaxConcurrency + ", sseMaxQueuedEvents=" + sseMaxQueuedEvents
+				+ ", sseStallTimeoutMs=" + sseStallTimeoutMs + ", maxInFlight=" + maxInFlight
+				+ ", maxInFlightPerSession=" + maxInFlightPerSession + ", maxQueuedRequests=" + maxQueuedRequests
+				+ ", gzip=" + gzipEnabled + ", gzipMinSize=" + gzipMinSize + ", restInProcess=" + restInProcess);
+	}
+
+	/**
+	 * Register the transport dispatching REST API calls to the REST API context of this server in-process
+	 */
+	private void registerRestTransport() {
+		Bundle bundle = FrameworkUtil.getBundle(McpServlet.class);
+		BundleContext context = bundle != null ? bundle.getBundleContext() : null;
+		if (context == null) {
+			log.warning("No bundle context, REST API calls are sent over HTTP");
+			return;
+		}
+		restTransportRegistration = context.registerService(RestTransport.class,
+				new ServletRestTransport(getServletContext()), null);
+	}
+
+	/**
+	 * Create the executor for tool calls. Virtual threads are used when requested (or in auto mode) and
+	 * supported by the running JVM (JDK 21+), bounded by a semaphore. Otherwise fall back to a fixed
+	 * platform thread pool.
+	 * @return request executor
+	 */
+	private ExecutorService createRequestExecutor() {
+		if (!EXECUTOR_MODE_FIXED.equals(executorMode)) {
+			ExecutorService virtualExecutor = BoundedExecutorService.newVirtualThreadPerTaskExecutor();
+			if (virtualExecutor != null) {
+				activeExecutorMode = EXECUTOR_MODE_VIRTUAL;
+				return new BoundedExecutorService(virtualExecutor, virtualThreadMaxConcurrency);
+			}
+			if (EXECUTOR_MODE_VIRTUAL.equals(executorMode))
+				log.warning("Virtual threads not supported by this JVM (" + System.getProperty("java.version")
+						+ "), falling back to fixed thread pool");
+		}
+		activeExecutorMode = EXECUTOR_MODE_FIXED;
+		return Executors.newFixedThreadPool(threadPoolSize);
 	}
 
 	@Override
 	public void destroy() {
-		if (cleanupScheduler != null) {
-			cleanupScheduler.shutdownNow();
+		if (timerScheduler != null) {
+			timerScheduler.shutdownNow();
 		}
 		if (requestExecutor != null) {
 			requestExecutor.shutdownNow();
 		}
+		if (serviceTracker != null) {
+			serviceTracker.close();
+		}
+		if (restTransportRegistration != null) {
+			try {
+				restTransportRegistration.unregister();
+			} catch (IllegalStateException e) {
+				// already unregistered with the bundle
+			}
+		}
 		super.destroy();
 		if (log.isLoggable(Level.INFO))
-			log.info("MCP Servlet destroyed. Cleanup scheduler stopped.");
+			log.info("MCP Servlet destroyed. Session timer stopped.");
 	}
 
 	private void loadConfigFromEnv() {
@@ -213,8 +360,6 @@ public class McpServlet extends HttpServlet {
 
 			streamingSessionTtlMs = getLongEnv(ENV_STREAMING_SESSION_TTL_MS, ENV_STREAMING_SESSION_TTL_MIN,
 					DEFAULT_STREAMING_SESSION_TTL_MS);
-			cleanupIntervalMs = getLongEnv(ENV_CLEANUP_INTERVAL_MS, ENV_CLEANUP_INTERVAL_MIN,
-					DEFAULT_CLEANUP_INTERVAL_MS);
 
 			// Heartbeat
 			String hbMs = System.getenv(ENV_HEARTBEAT_INTERVAL_MS);
@@ -227,17 +372,110 @@ public class McpServlet extends HttpServlet {
 			if (tpSize != null && !tpSize.trim().isEmpty()) {
 				threadPoolSize = Integer.parseInt(tpSize.trim());
 			}
+
+			// Executor mode
+			String mode = System.getenv(ENV_EXECUTOR_MODE);
+			if (mode != null && !mode.trim().isEmpty()) {
+				executorMode = mode.trim().toLowerCase();
+			}
+			String maxConcurrency = System.getenv(ENV_VIRTUAL_THREAD_MAX_CONCURRENCY);
+			if (maxConcurrency != null && !maxConcurrency.trim().isEmpty()) {
+				virtualThreadMaxConcurrency = Integer.parseInt(maxConcurrency.trim());
+			}
+
+			// SSE outbound queue
+			String sseQueue = System.getenv(ENV_SSE_MAX_QUEUED_EVENTS);
+			if (sseQueue != null && !sseQueue.trim().isEmpty()) {
+				sseMaxQueuedEvents = Integer.parseInt(sseQueue.trim());
+			}
+			String sseStall = System.getenv(ENV_SSE_STALL_TIMEOUT_MS);
+			if (sseStall != null && !sseStall.trim().isEmpty()) {
+				sseStallTimeoutMs = Long.parseLong(sseStall.trim());
+			}
+
+			// Admission control
+			String inFlight = System.getenv(ENV_MAX_IN_FLIGHT);
+			if (inFlight != null && !inFlight.trim().isEmpty()) {
+				maxInFlight = Integer.parseInt(inFlight.trim());
+			}
+			String inFlightPerSession = System.getenv(ENV_MAX_IN_FLIGHT_PER_SESSION);
+			if (inFlightPerSession != null && !inFlightPerSession.trim().isEmpty()) {
+				maxInFlightPerSession = Integer.parseInt(inFlightPerSession.trim());
+			}
+			String queued = System.getenv(ENV_MAX_QUEUED_REQUESTS);
+			if (queued != null && !queued.trim().isEmpty()) {
+				maxQueuedRequests = Integer.parseInt(queued.trim());
+			}
+			String retryAfter = System.getenv(ENV_BUSY_RETRY_AFTER_SECONDS);
+			if (retryAfter != null && !retryAfter.trim().isEmpty()) {
+				busyRetryAfterSeconds = Integer.parseInt(retryAfter.trim());
+			}
+
+			// Token renewal
+			String renewBefore = System.getenv(ENV_TOKEN_RENEW_BEFORE_MS);
+			if (renewBefore != null && !renewBefore.trim().isEmpty()) {
+				tokenRenewBeforeMs = Long.parseLong(renewBefore.trim());
+			}
+			String renewJitter = System.getenv(ENV_TOKEN_RENEW_JITTER_MS);
+			if (renewJitter != null && !renewJitter.trim().isEmpty()) {
+				tokenRenewJitterMs = Long.parseLong(renewJitter.trim());
+			}
+
+			// Response compression
+			String gzip = System.getenv(ENV_GZIP_ENABLED);
+			if (gzip != null && !gzip.trim().isEmpty()) {
+				gzipEnabled = Boolean.parseBoolean(gzip.trim());
+			}
+			String gzipMin = System.getenv(ENV_GZIP_MIN_SIZE);
+			if (gzipMin != null && !gzipMin.trim().isEmpty()) {
+				gzipMinSize = Integer.parseInt(gzipMin.trim());
+			}
+
+			// In-process REST API calls
+			String inProcess = System.getenv(ENV_REST_IN_PROCESS);
+			if (inProcess != null && !inProcess.trim().isEmpty()) {
+				restInProcess = Boolean.parseBoolean(inProcess.trim());
+			}
 		} catch (Exception e) {
 			log.log(Level.WARNING, "Failed to load MCP servlet config from environment", e);
 			// keep defaults
 		}
 		// enforce minimums to avoid too aggressive cleanup
-		if (cleanupIntervalMs < TimeUnit.SECONDS.toMillis(30)) {
-			cleanupIntervalMs = TimeUnit.SECONDS.toMillis(30);
-		}
 		if (streamingSessionTtlMs < TimeUnit.MINUTES.toMillis(1)) {
 			streamingSessionTtlMs = TimeUnit.MINUTES.toMillis(1);
 		}
+		if (!EXECUTOR_MODE_AUTO.equals(executorMode) && !EXECUTOR_MODE_VIRTUAL.equals(executorMode)
+				&& !EXECUTOR_MODE_FIXED.equals(executorMode)) {
+			log.warning("Unknown " + ENV_EXECUTOR_MODE + " value: " + executorMode + ", using " + EXECUTOR_MODE_AUTO);
+			executorMode = EXECUTOR_MODE_AUTO;
+		}
+		if (threadPoolSize < 1) {
+			threadPoolSize = 1;
+		}
+		if (virtualThreadMaxConcurrency < 1) {
+			virtualThreadMaxConcurrency = DEFAULT_VIRTUAL_THREAD_MAX_CONCURRENCY;
+		}
+		if (sseMaxQueuedEvents < 1) {
+			sseMaxQueuedEvents = DEFAULT_SSE_MAX_QUEUED_EVENTS;
+		}
+		if (sseStallTimeoutMs < TimeUnit.SECONDS.toMillis(1)) {
+			sseStallTimeoutMs = TimeUnit.SECONDS.toMillis(1);
+		}
+		if (maxInFlightPerSession < 1) {
+			maxInFlightPerSession = DEFAULT_MAX_IN_FLIGHT_PER_SESSION;
+		}
+		if (maxQueuedRequests < 0) {
+			maxQueuedRequests = 0;
+		}
+		if (busyRetryAfterSeconds < 1) {
+			busyRetryAfterSeconds = DEFAULT_BUSY_RETRY_AFTER_SECONDS;
+		}
+		if (tokenRenewJitterMs < 0) {
+			tokenRenewJitterMs = 0;
+		}
+		if (gzipMinSize < 0) {
+			gzipMinSize = 0;
+		}
 	}
 
 	private long getLongEnv(String keyMs, String keyMin, long defaultValue) {
@@ -255,30 +493,125 @@ public class McpServlet extends HttpServlet {
 		return defaultValue;
 	}
 
-	private void cleanupSessions() {
-		long now = System.currentTimeMillis();
-		for (Map.Entry<String, Long> e : lastAccess.entrySet()) {
-			String sessionId = e.getKey();
-			long last = e.getValue();
-			if (now - last > streamingSessionTtlMs) {
-				// remove streaming token
-				tokenInfos.remove(sessionId);
-				// close SSE async context if present
-				AsyncContext ctx = sessions.remove(sessionId);
-				if (ctx != null) {
-					try {
-						ctx.complete();
-					} catch (Exception ex) {
-						/* ignore */ }
+	/**
+	 * Schedule an expiry check for a session
+	 * @param session
+	 * @param delayMs
+	 */
+	private void scheduleExpiry(McpSession session, long delayMs) {
+		sessionTimer.schedule(() -> expireSession(session), delayMs);
+	}
+
+	/**
+	 * Expire a session if it has not been accessed within the TTL, otherwise re-arm the expiry check for the
+	 * remaining time. Each session has exactly one expiry check pending, so the timer only does work for
+	 * sessions that are due instead of scanning all sessions.
+	 * @param session
+	 */
+	private void expireSession(McpSession session) {
+		if (session.isClosed())
+			return; // already removed
+		long remaining = session.getLastAccessTime() + streamingSessionTtlMs - System.currentTimeMillis();
+		if (remaining > 0) {
+			scheduleExpiry(session, remaining);
+			return;
+		}
+		if (removeSession(session)) {
+			cleanedSessionsCount.incrementAndGet();
+			if (log.isLoggable(Level.INFO))
+				log.info("Cleaned up expired session: " + session.getId());
+		}
+	}
+
+	/**
+	 * Remove a session from the registry and close it (including its SSE stream)
+	 * @param session
+	 * @return true if the session was removed by this call
+	 */
+	private static boolean removeSession(McpSession session) {
+		boolean removed = sessions.remove(session.getId(), session);
+		session.close();
+		return removed;
+	}
+
+	/**
+	 * Schedule the background renewal of the token of a session, shortly before the token expires so tool calls
+	 * never wait for a refresh. A random jitter spreads the renewals of tokens issued at the same time.
+	 * <p>
+	 * Only a token with an expiry and a refresh token is scheduled. Called again whenever the token of the session
+	 * is set, so sessions without a renewable token have no pending timer task.
+	 * @param session
+	 */
+	private void scheduleTokenRenewal(McpSession session) {
+		if (tokenRenewBeforeMs <= 0 || session.isClosed())
+			return;
+		TokenInfo info = session.getTokenInfo();
+		if (info == null || info.getExpSeconds() <= 0 || info.getRefreshToken() == null)
+			return;
+		if (!session.markTokenRenewal(info))
+			return; // already scheduled for this token
+		long jitter = tokenRenewJitterMs > 0 ? ThreadLocalRandom.current().nextLong(tokenRenewJitterMs + 1) : 0;
+		long delay = info.getExpSeconds() * 1000L - tokenRenewBeforeMs - jitter - System.currentTimeMillis();
+		sessionTimer.schedule(() -> renewToken(session, info), Math.max(delay, 0));
+	}
+
+	/**
+	 * Renew the token of a session on the request executor, the timer thread must not block
+	 * @param session
+	 * @param info token the renewal was scheduled for
+	 */
+	private void renewToken(McpSession session, TokenInfo info) {
+		if (session.isClosed())
+			return;
+		if (session.getTokenInfo() != info)
+			return; // token replaced since, the new token has been scheduled when it was set
+		try {
+			requestExecutor.execute(() -> {
+				boolean renewed = false;
+				try {
+					IMcpService service = McpServiceTracker.getService(serviceTracker);
+					renewed = service != null && service.refreshToken(session.getId());
+				} catch (Exception e) {
+					log.log(Level.WARNING, "Background token renewal failed for session: " + session.getId(), e);
 				}
-				lastAccess.remove(sessionId);
-				cleanedSessionsCount++;
-				if (log.isLoggable(Level.INFO))
-					log.info("Cleaned up expired session: " + sessionId);
-			}
+				if (renewed) {
+					tokenRenewalCount.incrementAndGet();
+				} else {
+					tokenRenewalFailureCount.incrementAndGet();
+					// an expired token is refreshed by the next tool call
+					if (session.getTokenInfo() == info && !info.isExpired())
+						sessionTimer.schedule(() -> renewToken(session, info), TOKEN_RENEW_RETRY_MS);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// shutting down
 		}
 	}
 
+	/**
+	 * Schedule the next heartbeat of an SSE stream
+	 * @param stream
+	 */
+	private void scheduleHeartbeat(SseEventStream stream) {
+		if (heartbeatIntervalMs > 0)
+			sessionTimer.schedule(() -> heartbeat(stream), heartbeatIntervalMs);
+	}
+
+	/**
+	 * Send an SSE comment so that proxies do not drop idle streams, and disconnect clients that stopped reading.
+	 * @param stream
+	 */
+	private void heartbeat(SseEventStream stream) {
+		if (stream.isClosed())
+			return;
+		if (stream.isStalled(System.currentTimeMillis())) {
+			stream.disconnectSlowConsumer("output stalled for more than " + sseStallTimeoutMs + " ms");
+			return;
+		}
+		if (stream.sendComment("ping"))
+			scheduleHeartbeat(stream);
+	}
+
 	public static void setCurrentSessionId(String sessionId) {
 		currentSessionId.set(sessionId);
 	}
@@ -291,15 +624,22 @@ public class McpServlet extends HttpServlet {
 		currentSessionId.remove();
 	}
 
+	/**
+	 * Get an active session
+	 * @param sessionId
+	 * @return session or null
+	 */
+	public static McpSession getSession(String sessionId) {
+		return sessionId != null ? sessions.get(sessionId) : null;
+	}
+
 	public static String getToken(String sessionId) {
-		if (sessionId == null) return null;
-		TokenInfo info = tokenInfos.get(sessionId);
+		TokenInfo info = getTokenInfo(sessionId);
 		return info != null ? info.getToken() : null;
 	}
 
 	public static String getRefreshToken(String sessionId) {
-		if (sessionId == null) return null;
-		TokenInfo info = tokenInfos.get(sessionId);
+		TokenInfo info = getTokenInfo(sessionId);
 		return info != null ? info.getRefreshToken() : null;
 	}
 
@@ -309,12 +649,13 @@ public class McpServlet extends HttpServlet {
 	 * @return TokenInfo or null
 	 */
 	public static TokenInfo getTokenInfo(String sessionId) {
-		return sessionId != null ? tokenInfos.get(sessionId) : null;
+		McpSession session = getSession(sessionId);
+		return session != null ? session.getTokenInfo() : null;
 	}
 
 	/**
 	 * Update or remove token and refresh token for a session.
-	 * JWT claims (exp, clientId, userId) are parsed and cached at this time.
+	 * JWT claims (exp, clientId, userId, roleId, language) are parsed and cached at this time.
 	 * 
 	 * @param sessionId
 	 * @param token
@@ -322,10 +663,9 @@ public class McpServlet extends HttpServlet {
 	 */
 	public static void updateToken(String sessionId, String token, String refreshToken) {
 		if (!Util.isEmpty(sessionId, true)) {
-			if (!Util.isEmpty(token, true)) {
-				tokenInfos.put(sessionId, new TokenInfo(token, refreshToken));
-			} else {
-				tokenInfos.remove(sessionId);
+			McpSession session = sessions.get(sessionId);
+			if (session != null) {
+				session.setTokenInfo(!Util.isEmpty(token, true) ? new TokenInfo(token, refreshToken) : null);
 			}
 		}
 	}
@@ -370,39 +710,40 @@ public class McpServlet extends HttpServlet {
 		}
 		
 		// Session must have been created via initialize first
-		if (!lastAccess.containsKey(sessionId)) {
+		McpSession session = sessions.get(sessionId);
+		if (session == null || !session.touch(false)) {
 			resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid or expired session ID. Call initialize first.");
 			return;
 		}
 	    
 	    resp.setContentType(TEXT_EVENT_STREAM_CONTENT_TYPE);		
-		// If there is already an asynchronous connection, replace
-		AsyncContext existing = sessions.get(sessionId);
-		if (existing != null) {
-			log.info("MCP replacing existing SSE connection for session: " + sessionId);
-			try {
-				existing.complete();
-			} catch (Exception ignore) {
-			}
+		boolean gzip = gzipEnabled && acceptsGzip(req);
+		if (gzip) {
+			resp.setHeader("Content-Encoding", "gzip");
+			gzipStreamCount.incrementAndGet();
 		}
-		
+		if (gzipEnabled)
+			resp.addHeader("Vary", "Accept-Encoding");
 		AsyncContext asyncContext = req.startAsync();
 		asyncContext.setTimeout(0);
-		sessions.put(sessionId, asyncContext);
-		lastAccess.put(sessionId, System.currentTimeMillis());
-		setupListeners(asyncContext, sessionId);
+		ServletOutputStream out = resp.getOutputStream();
+		SseEventStream stream = new SseEventStream(sessionId, asyncContext, out, sseMaxQueuedEvents,
+				sseStallTimeoutMs, gzip);
 		// Echo session id
 		resp.setHeader(STREAMING_SESSION_HEADER, sessionId);
 		resp.setStatus(HttpServletResponse.SC_OK);
 		
+		// Switch to non-blocking output before the stream is published, worker threads may queue events as
+		// soon as the session has it. Events are drained by the container as the client reads
+		stream.start();
+		// If there is already an asynchronous connection, replace
+		if (session.getStream() != null)
+			log.info("MCP replacing existing SSE connection for session: " + sessionId);
+		session.replaceStream(stream);
+		setupListeners(asyncContext, session, stream);
 		// Send SSE comment to confirm stream is open (optional but helps with proxies)
-	    try {
-	        PrintWriter writer = resp.getWriter();
-	        writer.write(": stream opened\n\n");
-	        writer.flush();
-	    } catch (IOException e) {
-	        log.log(Level.WARNING, "Failed to write stream confirmation", e);
-	    }	    
+		stream.sendComment("stream opened");
+		scheduleHeartbeat(stream);
 		log.info("MCP SSE stream opened for session: " + sessionId);
 	}
 
@@ -412,50 +753,123 @@ public class McpServlet extends HttpServlet {
 		JsonObject json = new JsonObject();
 		json.addProperty(PROTOCOL_VERSION, protocolVersion);
 		json.addProperty("sessionTTLMillis", streamingSessionTtlMs);
-		json.addProperty("cleanupIntervalMillis", cleanupIntervalMs);
-		json.addProperty("activeSessionCount", sessions.size());
-		json.addProperty("trackedSessionCount", lastAccess.size());
-		json.addProperty("cleanedSessionTotal", cleanedSessionsCount);
+		json.addProperty("heartbeatIntervalMillis", heartbeatIntervalMs);
+		json.addProperty("timerPendingCount", sessionTimer.getPendingCount());
+		int activeSessionCount = 0;
+		for (McpSession session : sessions.values()) {
+			if (session.getStream() != null)
+				activeSessionCount++;
+		}
+		json.addProperty("activeSessionCount", activeSessionCount);
+		json.addProperty("trackedSessionCount", sessions.size());
+		json.addProperty("cleanedSessionTotal", cleanedSessionsCount.get());
+		JsonObject tokenRenewal = new JsonObject();
+		tokenRenewal.addProperty("renewBeforeMillis", tokenRenewBeforeMs);
+		tokenRenewal.addProperty("jitterMillis", tokenRenewJitterMs);
+		tokenRenewal.addProperty("renewedTotal", tokenRenewalCount.get());
+		tokenRenewal.addProperty("failedTotal", tokenRenewalFailureCount.get());
+		json.add("tokenRenewal", tokenRenewal);
+		json.add("executor", getExecutorStatus());
+		JsonObject admissionStatus = new JsonObject();
+		admissionStatus.addProperty("maxInFlight", admission.getMaxInFlight());
+		admissionStatus.addProperty("maxInFlightPerSession", admission.getMaxInFlightPerSession());
+		admissionStatus.addProperty("maxQueued", admission.getMaxQueued());
+		admissionStatus.addProperty("inFlight", admission.getInFlight());
+		admissionStatus.addProperty("queued", admission.getQueued());
+		admissionStatus.addProperty("admittedTotal", admission.getAdmittedTotal());
+		admissionStatus.addProperty("queuedTotal", admission.getQueuedTotal());
+		admissionStatus.addProperty("rejectedTotal", admission.getRejectedTotal());
+		admissionStatus.addProperty("rejectedSessionLimitTotal", admission.getRejectedSessionLimitTotal());
+		json.add("admission", admissionStatus);
+		if (serviceTracker != null) {
+			JsonObject service = new JsonObject();
+			service.addProperty("available", serviceTracker.isAvailable());
+			service.addProperty("unavailableCount", serviceTracker.getUnavailableCount());
+			service.addProperty("unavailableMillisTotal", serviceTracker.getTotalUnavailableMs());
+			service.addProperty("changeCount", serviceTracker.getServiceChangeCount());
+			json.add("service", service);
+		}
+		IMcpService mcpService = McpServiceTracker.getService(serviceTracker);
+		JsonObject serviceStatus = mcpService != null ? mcpService.getStatus() : null;
+		if (serviceStatus != null)
+			json.add("backend", serviceStatus);
+		JsonObject sse = new JsonObject();
+		sse.addProperty("maxQueuedEvents", sseMaxQueuedEvents);
+		sse.addProperty("stallTimeoutMillis", sseStallTimeoutMs);
+		sse.addProperty("queuedEvents", SseEventStream.getTotalQueuedEvents());
+		sse.addProperty("eventsSentTotal", SseEventStream.getTotalEventsSent());
+		sse.addProperty("eventsDroppedTotal", SseEventStream.getTotalEventsDropped());
+		sse.addProperty("slowConsumerDisconnectTotal", SseEventStream.getTotalSlowConsumerDisconnects());
+		json.add("sse", sse);
+		JsonObject compression = new JsonObject();
+		compression.addProperty("gzipEnabled", gzipEnabled);
+		compression.addProperty("gzipMinSize", gzipMinSize);
+		compression.addProperty("gzipResponseTotal", gzipResponseCount.get());
+		compression.addProperty("gzipStreamTotal", gzipStreamCount.get());
+		json.add("compression", compression);
 		json.addProperty("timestamp", System.currentTimeMillis());
 		// Provide a lightweight summary of session ids (may be large, so limit to first
 		// 50)
 		int limit = 50;
 		int i = 0;
 		JsonObject sessionSummary = new JsonObject();
-		for (String sid : sessions.keySet()) {
+		JsonObject queueSummary = new JsonObject();
+		for (McpSession session : sessions.values()) {
+			SseEventStream stream = session.getStream();
+			if (stream == null)
+				continue;
 			if (i++ >= limit)
 				break;
-			Long last = lastAccess.get(sid);
-			sessionSummary.addProperty(sid, last != null ? last : -1L);
+			String sid = session.getId();
+			sessionSummary.addProperty(sid, session.getLastAccessTime());
+			JsonObject queue = new JsonObject();
+			queue.addProperty("queuedEvents", stream.getQueuedEvents());
+			queue.addProperty("queuedBytes", stream.getQueuedBytes());
+			queue.addProperty("maxQueueDepth", stream.getMaxQueueDepth());
+			queue.addProperty("eventsSent", stream.getEventsSent());
+			queueSummary.add(sid, queue);
 		}
 		json.add("sessions", sessionSummary);
+		json.add("sseQueues", queueSummary);
 		writeJson(resp, json);
 	}
 
-	private void setupListeners(AsyncContext asyncContext, String sessionId) {
+	private JsonObject getExecutorStatus() {
+		JsonObject executor = new JsonObject();
+		executor.addProperty("mode", activeExecutorMode);
+		if (requestExecutor instanceof BoundedExecutorService) {
+			BoundedExecutorService bounded = (BoundedExecutorService) requestExecutor;
+			executor.addProperty("maxConcurrency", bounded.getMaxConcurrency());
+			executor.addProperty("activeCount", bounded.getActiveCount());
+			executor.addProperty("waitingCount", bounded.getWaitingCount());
+		} else if (requestExecutor instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) requestExecutor;
+			executor.addProperty("poolSize", pool.getMaximumPoolSize());
+			executor.addProperty("activeCount", pool.getActiveCount());
+			executor.addProperty("waitingCount", pool.getQueue().size());
+		}
+		return executor;
+	}
+
+	private void setupListeners(AsyncContext asyncContext, McpSession session, SseEventStream stream) {
+		String sessionId = session.getId();
 		asyncContext.addListener(new AsyncListener() {
 			@Override
 			public void onComplete(AsyncEvent event) {
 				log.info("MCP SSE session completed: " + sessionId);
-				sessions.remove(sessionId);
-				tokenInfos.remove(sessionId);
-				lastAccess.remove(sessionId);
+				removeStream(session, stream);
 			}
 
 			@Override
 			public void onTimeout(AsyncEvent event) {
 				log.info("MCP SSE session timeout: " + sessionId);
-				sessions.remove(sessionId);
-				tokenInfos.remove(sessionId);
-				lastAccess.remove(sessionId);
+				removeStream(session, stream);
 			}
 
 			@Override
 			public void onError(AsyncEvent event) {
 				log.warning("MCP SSE session error: " + sessionId + " - " + event.getThrowable());
-				sessions.remove(sessionId);
-				tokenInfos.remove(sessionId);
-				lastAccess.remove(sessionId);
+				removeStream(session, stream);
 			}
 
 			@Override
@@ -464,6 +878,19 @@ public class McpServlet extends HttpServlet {
 		});
 	}
 
+	/**
+	 * Remove session state when its SSE stream ends. A stream that has already been replaced by a
+	 * newer connection for the same session leaves the session untouched.
+	 * @param session
+	 * @param stream
+	 */
+	private void removeStream(McpSession session, SseEventStream stream) {
+		stream.close();
+		if (session.removeStream(stream)) {
+			removeSession(session);
+		}
+	}
+
 	private void setCommonResponseHeader(HttpServletResponse resp) {
 		resp.setCharacterEncoding("UTF-8");
 		resp.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
@@ -471,33 +898,12 @@ public class McpServlet extends HttpServlet {
 		resp.setHeader("Access-Control-Allow-Origin", corsOrigin);
 		// Expose headers so browser clients can read them
 		resp.setHeader("Access-Control-Expose-Headers",
-				STREAMING_SESSION_HEADER + ", " + MCP_PROTOCOL_VERSION_HEADER + ", Content-Type");
+				STREAMING_SESSION_HEADER + ", " + MCP_PROTOCOL_VERSION_HEADER + ", Content-Type, Content-Encoding, ETag, Retry-After");
 		resp.setHeader(MCP_PROTOCOL_VERSION_HEADER, protocolVersion);
 		// Prevent buffering in proxies/reverse proxies
 		resp.setHeader("X-Accel-Buffering", "no");
 	}
 
-	private void sendStreamingEvent(AsyncContext ctx, String eventName, String data) {
-		try {
-			ServletResponse response = ctx.getResponse();
-			response.setContentType(TEXT_EVENT_STREAM_CONTENT_TYPE);
-			PrintWriter writer = response.getWriter();
-			synchronized (writer) {
-				writer.write("event: " + eventName + "\n");
-				writer.write("data: " + data + "\n\n");
-				writer.flush();
-			}
-			if (log.isLoggable(Level.FINE))
-				log.fine("Sent SSE event: " + eventName);
-		} catch (IOException e) {
-			log.log(Level.WARNING, "Failed to send Streaming event", e);
-			try {
-				ctx.complete();
-			} catch (Exception ignore) {}
-			sessions.values().remove(ctx);
-		}
-	}
-
 	private static final AtomicReference<String> restBaseUrl = new AtomicReference<>(null);
 	
 	/**
@@ -534,128 +940,422 @@ public class McpServlet extends HttpServlet {
 	
 	@Override
 	protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		if (req.getDispatcherType() == DispatcherType.ASYNC && req.getAttribute(ABORT_RESPONSE_ATTRIBUTE) != null)
+			// the container closes the connection of a committed response failing in a dispatch
+			throw new IOException("MCP response aborted after part of it was sent");
 		buildRestBaseURL(req);
 		setCommonResponseHeader(resp);
 
 		String sessionId = req.getHeader(STREAMING_SESSION_HEADER);				
-		String jsonBody = readBody(req);
-		JsonObject jsonObject = JsonParser.parseString(jsonBody).getAsJsonObject();
-		String method = jsonObject.get("method").getAsString();
-		boolean isInitialize = "initialize".equals(method);
+		// Parsed once here, the JSON object (or batch array) is handed to IMcpService as is
+		JsonElement message = JsonParser.parseReader(req.getReader());
+		// initialize can't be part of a batch
+		boolean isInitialize = message.isJsonObject()
+				&& "initialize".equals(message.getAsJsonObject().get("method").getAsString());
+		McpSession session;
 		if (isInitialize && Util.isEmpty(sessionId, true)) {
 			sessionId = UUID.randomUUID().toString();
 			String token = extractToken(req);
-			if (token != null)
-				tokenInfos.put(sessionId, new TokenInfo(token, null));
-			lastAccess.put(sessionId, System.currentTimeMillis());								
-		} else {			
+			session = new McpSession(sessionId, token != null ? new TokenInfo(token, null) : null);
+			session.touch(true);
+			sessions.put(sessionId, session);
+			scheduleExpiry(session, streamingSessionTtlMs);
+			McpSession created = session;
+			session.setTokenListener(() -> scheduleTokenRenewal(created));
+			scheduleTokenRenewal(session);
+		} else {
 			if (Util.isEmpty(sessionId, true)) {
 				resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
 						String.format("Missing %s header", STREAMING_SESSION_HEADER));
 				return;
 			}
-			if (!lastAccess.containsKey(sessionId)) {
+			session = sessions.get(sessionId);
+			if (session == null || !session.touch(true)) {
 				resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid or expired session ID");
 				return;
 			}
-			lastAccess.put(sessionId, System.currentTimeMillis());			
 		}
 		
 		resp.setHeader(STREAMING_SESSION_HEADER, sessionId);
-		processRequest(sessionId, jsonBody, resp);
+		if (message.isJsonArray())
+			processBatch(session, message.getAsJsonArray(), req, resp);
+		else
+			processRequest(session, message.getAsJsonObject(), req, resp);
 	}
 
-	private String readBody(HttpServletRequest req) throws IOException {
-		StringBuilder sb = new StringBuilder();
-		String line;
-		java.io.BufferedReader reader = req.getReader();
-		while ((line = reader.readLine()) != null)
-			sb.append(line);
-		return sb.toString();
+	/**
+	 * Set the ETag of the catalogue on a tools/list response, so clients can tell when the tools changed. The
+	 * result is always sent, a JSON-RPC request over POST can't be answered with 304.
+	 * @param request
+	 * @param resp
+	 */
+	private void setToolsListETag(JsonObject request, HttpServletResponse resp) {
+		JsonElement method = request.get("method");
+		if (method == null || !"tools/list".equals(method.getAsString()))
+			return;
+		IMcpService service = McpServiceTracker.getService(serviceTracker);
+		String etag = service != null ? service.getToolsListETag() : null;
+		if (etag != null)
+			resp.setHeader("ETag", etag);
+	}
+
+	/**
+	 * Process a JSON-RPC batch. The requests of the batch are independent and dispatched in parallel on the
+	 * request executor. With an SSE stream open, each response is sent as its own event as soon as it completes,
+	 * otherwise the responses are collected into one batch reply to the POST request.
+	 * 
+	 * @param session
+	 * @param batch
+	 * @param req
+	 * @param resp
+	 * @throws IOException 
+	 */
+	private void processBatch(McpSession session, JsonArray batch, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		if (batch.size() == 0) {
+			resp.setContentType(APPLICATION_JSON_CONTENT_TYPE);
+			resp.setStatus(HttpServletResponse.SC_OK);
+			resp.getOutputStream().write(createErrorJson(null, -32600, "Invalid Request: empty batch").getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+
+		// the batch counts as one request against the per-session limit
+		AdmissionController.Batch members = admission.openBatch(session);
+		try {
+			processBatch(session, batch, members, req, resp);
+		} finally {
+			if (members != null)
+				members.close();
+		}
+	}
+
+	/**
+	 * @param members admission of the batch, null if the session is busy and all members are rejected
+	 */
+	private void processBatch(McpSession session, JsonArray batch, AdmissionController.Batch members,
+			HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		String sessionId = session.getId();
+		SseEventStream stream = session.getStream();
+		if (stream != null) {
+			log.info("MCP processBatch - using SSE for session: " + sessionId + ", size=" + batch.size());
+			resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+			resp.flushBuffer();
+			for (JsonElement element : batch) {
+				if (!element.isJsonObject()) {
+					stream.sendEvent("message", createErrorJson(null, -32600, "Invalid Request"));
+					continue;
+				}
+				JsonObject request = element.getAsJsonObject();
+				try {
+					boolean admitted = members != null && members.submit(() -> {
+						try {
+							executeRequest(session, request, resp, null);
+						} catch (Exception e) {
+							log.log(Level.SEVERE, "MCP async execution failed", e);
+						}
+					}, () -> stream.sendEvent("message", createErrorJson(request.get("id"), -32000, "Server is shutting down")));
+					if (!admitted)
+						stream.sendEvent("message", createErrorJson(request.get("id"), SERVER_BUSY_ERROR_CODE, SERVER_BUSY_MESSAGE));
+				} catch (RejectedExecutionException e) {
+					log.log(Level.WARNING, "MCP batch request rejected by executor", e);
+					stream.sendEvent("message", createErrorJson(request.get("id"), -32000, "Server is shutting down"));
+				}
+			}
+			return;
+		}
+
+		log.info("MCP processBatch - direct response (no SSE) for session: " + sessionId + ", size=" + batch.size());
+		int gzipThreshold = getGzipThreshold(req);
+		AsyncContext asyncContext = req.startAsync();
+		asyncContext.setTimeout(0);
+		ServletRestTransport.Binding binding = new ServletRestTransport.Binding(req);
+		// the last request to complete writes the batch reply, so no executor thread waits on another
+		byte[][] responses = new byte[batch.size()][];
+		AtomicInteger remaining = new AtomicInteger(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			int index = i;
+			JsonElement element = batch.get(i);
+			if (!element.isJsonObject()) {
+				responses[index] = createErrorJson(null, -32600, "Invalid Request").getBytes(StandardCharsets.UTF_8);
+				if (remaining.decrementAndGet() == 0)
+					writeBatchResponse(asyncContext, binding, responses, gzipThreshold);
+				continue;
+			}
+			JsonObject request = element.getAsJsonObject();
+			try {
+				boolean admitted = members != null && members.submit(() -> {
+					ServletRestTransport.setCurrentBinding(binding);
+					try {
+						responses[index] = executeBatchRequest(session, request);
+					} finally {
+						ServletRestTransport.clearCurrentBinding();
+						if (remaining.decrementAndGet() == 0)
+							writeBatchResponse(asyncContext, binding, responses, gzipThreshold);
+					}
+				}, () -> {
+					responses[index] = createErrorJson(request.get("id"), -32000, "Server is shutting down")
+							.getBytes(StandardCharsets.UTF_8);
+					if (remaining.decrementAndGet() == 0)
+						writeBatchResponse(asyncContext, binding, responses, gzipThreshold);
+				});
+				if (!admitted) {
+					responses[index] = createErrorJson(request.get("id"), SERVER_BUSY_ERROR_CODE, SERVER_BUSY_MESSAGE)
+							.getBytes(StandardCharsets.UTF_8);
+					if (remaining.decrementAndGet() == 0)
+						writeBatchResponse(asyncContext, binding, responses, gzipThreshold);
+				}
+			} catch (RejectedExecutionException e) {
+				log.log(Level.WARNING, "MCP batch request rejected by executor", e);
+				responses[index] = createErrorJson(request.get("id"), -32000, "Server is shutting down").getBytes(StandardCharsets.UTF_8);
+				if (remaining.decrementAndGet() == 0)
+					writeBatchResponse(asyncContext, binding, responses, gzipThreshold);
+			}
+		}
+	}
+
+	/**
+	 * Execute one request of a batch
+	 * @param session
+	 * @param request
+	 * @return JSON-RPC response or null for notification
+	 */
+	private byte[] executeBatchRequest(McpSession session, JsonObject request) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			if (!callService(session, request, buffer))
+				return null;
+		} catch (Exception e) {
+			log.log(Level.WARNING, "MCP Execution Failed", e);
+			buffer.reset();
+			writeErrorJson(buffer, request.get("id"), -32603, "Internal Error");
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Write the collected batch responses as one JSON array and complete the request
+	 * @param asyncContext
+	 * @param binding in-process REST API dispatch with the batch request, closed before the response is written
+	 * @param responses response of each batch request, null for notifications
+	 * @param gzipThreshold see {@link #getGzipThreshold(HttpServletRequest)}
+	 */
+	private void writeBatchResponse(AsyncContext asyncContext, ServletRestTransport.Binding binding, byte[][] responses,
+			int gzipThreshold) {
+		binding.close();
+		HttpServletResponse resp = (HttpServletResponse) asyncContext.getResponse();
+		try {
+			ResponseOutputStream out = new ResponseOutputStream(resp, gzipThreshold);
+			boolean first = true;
+			for (byte[] response : responses) {
+				if (response == null)
+					continue;
+				out.write(first ? '[' : ',');
+				out.write(response);
+				first = false;
+			}
+			if (first) {
+				// batch of notifications only
+				resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+				resp.flushBuffer();
+			} else {
+				out.write(']');
+				out.finish();
+			}
+		} catch (IOException e) {
+			log.log(Level.WARNING, "Failed to write batch response", e);
+		} finally {
+			try {
+				asyncContext.complete();
+			} catch (Exception ignore) {
+			}
+		}
 	}
 
 	/**
 	 * Core MCP Logic Processor
 	 * 
-	 * @param sessionId
-	 * @param jsonBody
+	 * @param session
+	 * @param request parsed JSON-RPC request
+	 * @param req
 	 * @param resp 
 	 */
-	private void processRequest(String sessionId, String jsonBody, HttpServletResponse resp) {
-		AsyncContext ctx = sessions.get(sessionId);
-		if (ctx != null) {
+	private void processRequest(McpSession session, JsonObject request, HttpServletRequest req, HttpServletResponse resp) {
+		String sessionId = session.getId();
+		if (session.getStream() != null) {
 			// Client has SSE stream open - process async and respond via SSE
 			log.info("MCP processRequest - using SSE for session: " + sessionId);
+			boolean admitted;
+			try {
+				admitted = admission.submit(session, () -> {
+					try {
+						executeRequest(session, request, resp, null);
+					} catch (Exception e) {
+						log.log(Level.SEVERE, "MCP async execution failed", e);
+					}
+				}, () -> {
+					// the 202 has been sent, answer on the stream
+					SseEventStream stream = session.getStream();
+					if (stream != null)
+						stream.sendEvent("message", createErrorJson(request.get("id"), -32000, "Server is shutting down"));
+				});
+			} catch (RejectedExecutionException e) {
+				log.log(Level.WARNING, "MCP request rejected by executor", e);
+				sendServiceUnavailable(resp);
+				return;
+			}
+			if (!admitted) {
+				sendServerBusy(resp, request.get("id"));
+				return;
+			}
 			resp.setStatus(HttpServletResponse.SC_ACCEPTED);
 			try {
 				resp.flushBuffer();
 			} catch (IOException e) {
 				log.log(Level.WARNING, "Failed to flush 202 response", e);
 			}
-			requestExecutor.submit(() -> {
-				try {
-					executeRequest(sessionId, jsonBody, resp, true);
-				} catch (Exception e) {
-					log.log(Level.SEVERE, "MCP async execution failed", e);
-				}
-			});
 		} else {
-			// No SSE stream - respond directly in POST response
+			// No SSE stream - respond directly in POST response. The tool call runs on the request executor
+			// and the container thread is released until the response is complete.
 			log.info("MCP processRequest - direct response (no SSE) for session: " + sessionId);
-			executeRequest(sessionId, jsonBody, resp, false);
+			setToolsListETag(request, resp);
+			int gzipThreshold = getGzipThreshold(req);
+			AsyncContext asyncContext = req.startAsync();
+			asyncContext.setTimeout(0);
+			try {
+				boolean admitted = admission.submit(session, () -> {
+					ServletRestTransport.Binding binding = new ServletRestTransport.Binding(req);
+					ServletRestTransport.setCurrentBinding(binding);
+					HttpServletResponse asyncResp = (HttpServletResponse) asyncContext.getResponse();
+					ResponseOutputStream directOut = new ResponseOutputStream(asyncResp, gzipThreshold);
+					try {
+						executeRequest(session, request, asyncResp, directOut);
+					} catch (Exception e) {
+						log.log(Level.SEVERE, "MCP direct response execution failed", e);
+					} finally {
+						ServletRestTransport.clearCurrentBinding();
+						binding.close();
+						completeDirectResponse(req, asyncContext, directOut);
+					}
+				}, () -> {
+					try {
+						sendServiceUnavailable((HttpServletResponse) asyncContext.getResponse());
+					} finally {
+						try {
+							asyncContext.complete();
+						} catch (Exception ignore) {
+						}
+					}
+				});
+				if (!admitted) {
+					sendServerBusy(resp, request.get("id"));
+					asyncContext.complete();
+				}
+			} catch (RejectedExecutionException e) {
+				log.log(Level.WARNING, "MCP request rejected by executor", e);
+				try {
+					sendServiceUnavailable(resp);
+				} finally {
+					asyncContext.complete();
+				}
+			}
 		}
 	}
 
-	private void executeRequest(String sessionId, String jsonBody, HttpServletResponse resp, boolean isAsync) {
-		log.info("MCP executeRequest - sessionId=" + sessionId + ", isAsync=" + isAsync + ", body=" + 
-				(jsonBody.length() > 100 ? jsonBody.substring(0, 100) + "..." : jsonBody));
-		
-		// Execute via Service
-		IMcpService service = Service.locator().locate(IMcpService.class).getService();
-		String response = null;
+	/**
+	 * Complete a direct response. There is no servlet API to abort a response, so a response that failed after
+	 * part of it was sent is failed in an async dispatch, the container then closes the connection and the client
+	 * sees a broken transfer instead of a clean end of a truncated body.
+	 * @param req
+	 * @param asyncContext
+	 * @param directOut output of the response
+	 */
+	private void completeDirectResponse(HttpServletRequest req, AsyncContext asyncContext, ResponseOutputStream directOut) {
 		try {
-			if (service != null) {
-				try {
-					TokenInfo info = tokenInfos.get(sessionId);
-					String token = info != null ? info.getToken() : null;
-					log.info("MCP calling service.processRequest...");
-					response = service.processRequest(jsonBody, token, sessionId);
-					log.info("MCP service returned response: " + (response != null ? response.substring(0, Math.min(200, response.length())) + "..." : "null"));
-				} catch (Exception e) {
-					log.log(Level.WARNING, "MCP Execution Failed", e);
-					response = createErrorJson(-32603, "Internal Error");
-				}
+			if (directOut.isAborted()) {
+				req.setAttribute(ABORT_RESPONSE_ATTRIBUTE, Boolean.TRUE);
+				asyncContext.dispatch();
 			} else {
-				log.warning("MCP Service not found!");
-				response = createErrorJson(-32000, "OSGi Service Not Found");
+				asyncContext.complete();
 			}
+		} catch (Exception ignore) {
+		}
+	}
+
+	/**
+	 * Reject an overload request with 429, Retry-After and a JSON-RPC server busy error
+	 * @param resp
+	 * @param id request id, may be null
+	 */
+	private void sendServerBusy(HttpServletResponse resp, JsonElement id) {
+		try {
+			resp.setStatus(SC_TOO_MANY_REQUESTS);
+			resp.setHeader("Retry-After", Integer.toString(busyRetryAfterSeconds));
+			resp.setContentType(APPLICATION_JSON_CONTENT_TYPE);
+			resp.getOutputStream().write(createErrorJson(id, SERVER_BUSY_ERROR_CODE, SERVER_BUSY_MESSAGE).getBytes(StandardCharsets.UTF_8));
+			resp.flushBuffer();
+		} catch (IOException e) {
+			log.log(Level.WARNING, "Failed to send server busy response", e);
+		}
+	}
+
+	private void sendServiceUnavailable(HttpServletResponse resp) {
+		try {
+			resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is shutting down");
+		} catch (IOException e) {
+			log.log(Level.WARNING, "Failed to send service unavailable response", e);
+		}
+	}
+
+	/**
+	 * Execute a request and send its response on the SSE stream of the session or in the POST response
+	 * @param session
+	 * @param request
+	 * @param resp
+	 * @param directOut output of the POST response, null to respond via SSE
+	 */
+	private void executeRequest(McpSession session, JsonObject request, HttpServletResponse resp, ResponseOutputStream directOut) {
+		String sessionId = session.getId();
+		boolean isAsync = directOut == null;
+		JsonElement id = request.get("id");
+		if (log.isLoggable(Level.INFO))
+			log.info("MCP executeRequest - sessionId=" + sessionId + ", isAsync=" + isAsync + ", method="
+					+ request.get("method") + ", id=" + id);
+
+		// Direct responses are written straight to the servlet output, SSE responses are framed as one event
+		ByteArrayOutputStream sseBuffer = isAsync ? new ByteArrayOutputStream() : null;
+		OutputStream out = isAsync ? sseBuffer : directOut;
+		boolean written = false;
+		try {
+			written = callService(session, request, out);
 		} catch (Exception e) {
-			log.log(Level.WARNING, "MCP Processing Error", e);
-			response = createErrorJson(-32603, "Internal error: " + e.getMessage());
+			log.log(Level.WARNING, "MCP Execution Failed", e);
+			if (isAsync) {
+				sseBuffer.reset();
+				written = writeErrorJson(out, id, -32603, "Internal Error");
+			} else if (directOut.reset()) {
+				written = writeErrorJson(out, id, -32603, "Internal Error");
+			} else {
+				// part of the response has already been sent, it can only be aborted
+				directOut.abort();
+				return;
+			}
 		}
 
 		// Send response back
-		if (response != null) {
+		if (written) {
 			if (isAsync) {
-				// Was supposed to use SSE - check if context is still valid
-				AsyncContext ctx = sessions.get(sessionId);
-				if (ctx != null) {
-					log.info("MCP sending response via SSE stream");
-					sendStreamingEvent(ctx, "message", response);
+				// Was supposed to use SSE - check if stream is still open
+				SseEventStream stream = session.getStream();
+				if (stream != null) {
+					log.info("MCP queueing response on SSE stream");
+					if (!stream.sendEvent("message", sseBuffer.toByteArray()))
+						log.warning("MCP SSE stream rejected response for session: " + sessionId);
 				} else {
 					// SSE context was closed during processing - log warning but can't send response
 					log.warning("MCP SSE context closed during async processing, cannot send response for session: " + sessionId);
 				}
 			} else {
-				// No SSE stream - respond directly in HTTP response
-				log.info("MCP sending response directly in HTTP response");
 				try {
-					byte[] responseBytes = response.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-					resp.setContentType(APPLICATION_JSON_CONTENT_TYPE);
-					resp.setContentLength(responseBytes.length);
-					resp.setStatus(HttpServletResponse.SC_OK);
-					resp.getOutputStream().write(responseBytes);
-					resp.getOutputStream().flush();
+					directOut.finish();
 				} catch (IOException e) {
 					log.log(Level.WARNING, "Failed to write response", e);
 				}
@@ -675,9 +1375,48 @@ public class McpServlet extends HttpServlet {
 		}
 	}
 
-	private String createErrorJson(int code, String message) {
+	/**
+	 * Execute a request via IMcpService
+	 * @param session
+	 * @param request
+	 * @param out JSON-RPC response output
+	 * @return true if a response has been written
+	 * @throws IOException
+	 */
+	private boolean callService(McpSession session, JsonObject request, OutputStream out) throws IOException {
+		IMcpService service = McpServiceTracker.getService(serviceTracker);
+		if (service == null) {
+			log.warning("MCP Service not found!");
+			return writeErrorJson(out, request.get("id"), -32000, "OSGi Service Not Found");
+		}
+		TokenInfo info = session.getTokenInfo();
+		String token = info != null ? info.getToken() : null;
+		return service.processRequest(request, token, session.getId(), out);
+	}
+
+	/**
+	 * Write a JSON-RPC error response
+	 * @param out
+	 * @param id request id, may be null
+	 * @param code
+	 * @param message
+	 * @return true if the error has been written
+	 */
+	private boolean writeErrorJson(OutputStream out, JsonElement id, int code, String message) {
+		try {
+			out.write(createErrorJson(id, code, message).getBytes(StandardCharsets.UTF_8));
+			return true;
+		} catch (IOException e) {
+			log.log(Level.WARNING, "Failed to write error response", e);
+			return false;
+		}
+	}
+
+	private String createErrorJson(JsonElement id, int code, String message) {
 		JsonObject json = new JsonObject();
 		json.addProperty("jsonrpc", "2.0");
+		if (id != null)
+			json.add("id", id);
 		JsonObject error = new JsonObject();
 		error.addProperty("code", code);
 		error.addProperty("message", message);
@@ -685,6 +1424,149 @@ public class McpServlet extends HttpServlet {
 		return json.toString();
 	}
 
+	/**
+	 * @param req
+	 * @return minimum size of a gzip encoded direct response, -1 if the response must not be compressed
+	 */
+	private int getGzipThreshold(HttpServletRequest req) {
+		return gzipEnabled && acceptsGzip(req) ? gzipMinSize : -1;
+	}
+
+	/**
+	 * @param req
+	 * @return true if the Accept-Encoding header of the request accepts gzip
+	 */
+	private static boolean acceptsGzip(HttpServletRequest req) {
+		Enumeration<String> values = req.getHeaders("Accept-Encoding");
+		while (values != null && values.hasMoreElements()) {
+			for (String coding : values.nextElement().split(",")) {
+				String[] parts = coding.split(";");
+				if (!"gzip".equalsIgnoreCase(parts[0].trim()))
+					continue;
+				boolean accepted = true;
+				for (int i = 1; i < parts.length; i++) {
+					String param = parts[i].trim();
+					if (param.startsWith("q=")) {
+						try {
+							accepted = Double.parseDouble(param.substring(2).trim()) > 0;
+						} catch (NumberFormatException e) {
+							accepted = false;
+						}
+					}
+				}
+				return accepted;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Output stream of a direct POST response. Status and content type are only set on the first write, so a
+	 * request without response (notification) can still be acknowledged with 202.
+	 * <p>
+	 * When the client accepts gzip, the body is held back until it reaches the compression threshold: a larger
+	 * body is gzip encoded, a smaller one is sent as is by {@link #finish()}.
+	 */
+	private static class ResponseOutputStream extends OutputStream {
+		private final HttpServletResponse resp;
+		private final int gzipThreshold;
+		/** body held back while below gzipThreshold */
+		private ByteArrayOutputStream pending;
+		private OutputStream out;
+		private boolean aborted;
+
+		/**
+		 * @param resp
+		 * @param gzipThreshold minimum body size to gzip encode, -1 to never compress
+		 */
+		private ResponseOutputStream(HttpServletResponse resp, int gzipThreshold) {
+			this.resp = resp;
+			this.gzipThreshold = gzipThreshold;
+		}
+
+		private OutputStream open(boolean gzip) throws IOException {
+			if (out == null) {
+				resp.setStatus(HttpServletResponse.SC_OK);
+				resp.setContentType(APPLICATION_JSON_CONTENT_TYPE);
+				if (gzipThreshold >= 0)
+					resp.addHeader("Vary", "Accept-Encoding");
+				if (gzip) {
+					resp.setHeader("Content-Encoding", "gzip");
+					out = new GZIPOutputStream(resp.getOutputStream(), GZIP_BUFFER_SIZE);
+					gzipResponseCount.incrementAndGet();
+				} else {
+					out = resp.getOutputStream();
+				}
+			}
+			return out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len <= 0)
+				return;
+			if (out == null && gzipThreshold >= 0) {
+				if (pending == null)
+					pending = new ByteArrayOutputStream();
+				pending.write(b, off, len);
+				if (pending.size() >= gzipThreshold) {
+					ByteArrayOutputStream body = pending;
+					pending = null;
+					body.writeTo(open(true));
+				}
+				return;
+			}
+			open(false).write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (out != null)
+				out.flush();
+		}
+
+		/**
+		 * Send the body held back and complete the compressed stream
+		 * @throws IOException
+		 */
+		private void finish() throws IOException {
+			if (pending != null) {
+				ByteArrayOutputStream body = pending;
+				pending = null;
+				body.writeTo(open(false));
+			}
+			if (out instanceof GZIPOutputStream)
+				((GZIPOutputStream) out).finish();
+			flush();
+		}
+
+		/**
+		 * Discard the body held back
+		 * @return false if part of the response has already been sent
+		 */
+		private boolean reset() {
+			pending = null;
+			return out == null;
+		}
+
+		/**
+		 * Mark the response as failed after part of it was sent, it must not be completed normally
+		 */
+		private void abort() {
+			pending = null;
+			aborted = true;
+		}
+
+		private boolean isAborted() {
+			return aborted;
+		}
+	}
+
 	// Allow Options for CORS Pre-flight checks
 	@Override
 	protected void doOptions(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -692,9 +1574,9 @@ public class McpServlet extends HttpServlet {
 		resp.setHeader("Access-Control-Allow-Origin", corsOrigin);
 		resp.setHeader("Access-Control-Allow-Methods", "GET, POST, OPTIONS, DELETE");
 		resp.setHeader("Access-Control-Allow-Headers",
-				"Content-Type, Authorization, " + STREAMING_SESSION_HEADER + ", " + MCP_PROTOCOL_VERSION_HEADER);
+				"Content-Type, Authorization, " + STREAMING_SESSION_HEADER + ", " + MCP_PROTOCOL_VERSION_HEADER + ", If-None-Match");
 		resp.setHeader("Access-Control-Expose-Headers",
-				STREAMING_SESSION_HEADER + ", " + MCP_PROTOCOL_VERSION_HEADER + ", Content-Type");
+				STREAMING_SESSION_HEADER + ", " + MCP_PROTOCOL_VERSION_HEADER + ", Content-Type, Content-Encoding, ETag, Retry-After");
 		resp.setStatus(HttpServletResponse.SC_OK);
 	}
 
@@ -717,16 +1599,11 @@ public class McpServlet extends HttpServlet {
 			resp.sendError(HttpServletResponse.SC_BAD_REQUEST, String.format("Missing %s header", STREAMING_SESSION_HEADER));
 			return;
 		}
-		// Close SSE context if present and remove session state
-		AsyncContext ctx = sessions.remove(sessionId);
-		if (ctx != null) {
-			try {
-				ctx.complete();
-			} catch (Exception ignore) {
-			}
+		// Close SSE stream if present and remove session state
+		McpSession session = sessions.remove(sessionId);
+		if (session != null) {
+			session.close();
 		}
-		tokenInfos.remove(sessionId);
-		lastAccess.remove(sessionId);
 		resp.setStatus(HttpServletResponse.SC_OK);
 		resp.setContentType(APPLICATION_JSON_CONTENT_TYPE);
 		JsonObject ack = new JsonObject();
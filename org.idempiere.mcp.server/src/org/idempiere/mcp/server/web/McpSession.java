@@ -0,0 +1,226 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.idempiere.mcp.server.web.McpServlet.TokenInfo;
+
+/**
+ * State of one MCP session: auth token, SSE stream, last access time and counters.
+ * <p>
+ * All fields are updated atomically so the session can be shared by request, SSE and timer threads without
+ * locking. A session lives in a single registry entry and is closed exactly once.
+ */
+public class McpSession {
+
+	private final String id;
+	private final long createdTime;
+	private final AtomicReference<TokenInfo> tokenInfo = new AtomicReference<>();
+	private final AtomicReference<SseEventStream> stream = new AtomicReference<>();
+	private final AtomicLong lastAccessTime;
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicReference<CompletableFuture<TokenInfo>> tokenRefresh = new AtomicReference<>();
+	// token the background renewal is scheduled for
+	private final AtomicReference<TokenInfo> renewalToken = new AtomicReference<>();
+	private volatile Runnable tokenListener;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/**
+	 * @param id        session id
+	 * @param tokenInfo initial token, may be null
+	 */
+	McpSession(String id, TokenInfo tokenInfo) {
+		this.id = id;
+		this.createdTime = System.currentTimeMillis();
+		this.lastAccessTime = new AtomicLong(createdTime);
+		this.tokenInfo.set(tokenInfo);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public long getCreatedTime() {
+		return createdTime;
+	}
+
+	/**
+	 * @return token of the session or null
+	 */
+	public TokenInfo getTokenInfo() {
+		return tokenInfo.get();
+	}
+
+	/**
+	 * @param info new token, null to remove
+	 */
+	void setTokenInfo(TokenInfo info) {
+		tokenInfo.set(info);
+		Runnable listener = tokenListener;
+		if (listener != null)
+			listener.run();
+	}
+
+	/**
+	 * @param listener called after the token of the session is set or removed
+	 */
+	void setTokenListener(Runnable listener) {
+		this.tokenListener = listener;
+	}
+
+	/**
+	 * Record that the background renewal of a token is scheduled
+	 * @param info
+	 * @return false if the renewal of info is already scheduled
+	 */
+	boolean markTokenRenewal(TokenInfo info) {
+		TokenInfo current = renewalToken.get();
+		return current != info && renewalToken.compareAndSet(current, info);
+	}
+
+	/**
+	 * Join the token refresh in flight, or register refresh as the one in flight
+	 * @param refresh future of a new refresh
+	 * @return the refresh in flight, refresh itself if the caller must run it
+	 */
+	public CompletableFuture<TokenInfo> joinTokenRefresh(CompletableFuture<TokenInfo> refresh) {
+		while (true) {
+			CompletableFuture<TokenInfo> current = tokenRefresh.get();
+			if (current != null)
+				return current;
+			if (tokenRefresh.compareAndSet(null, refresh))
+				return refresh;
+		}
+	}
+
+	/**
+	 * Clear a completed token refresh
+	 * @param refresh
+	 */
+	public void endTokenRefresh(CompletableFuture<TokenInfo> refresh) {
+		tokenRefresh.compareAndSet(refresh, null);
+	}
+
+	public long getLastAccessTime() {
+		return lastAccessTime.get();
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Record an access to the session
+	 * @param countRequest true to increment the request counter
+	 * @return false if the session has already been closed
+	 */
+	boolean touch(boolean countRequest) {
+		if (closed.get())
+			return false;
+		lastAccessTime.set(System.currentTimeMillis());
+		if (countRequest)
+			requestCount.incrementAndGet();
+		return !closed.get();
+	}
+
+	/**
+	 * Reserve an in-flight request slot
+	 * @param max maximum number of in-flight requests of the session
+	 * @return false if the session already has max requests in flight
+	 */
+	boolean tryAcquireInFlight(int max) {
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= max)
+				return false;
+		} while (!inFlight.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	void releaseInFlight() {
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * @return number of requests of the session running or waiting for admission
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return open SSE stream or null
+	 */
+	SseEventStream getStream() {
+		return stream.get();
+	}
+
+	/**
+	 * Attach a new SSE stream, closing the stream it replaces.
+	 * @param newStream
+	 */
+	void replaceStream(SseEventStream newStream) {
+		SseEventStream existing = stream.getAndSet(newStream);
+		if (existing != null && existing != newStream)
+			existing.close();
+		// session closed concurrently, don't leave the new stream open
+		if (closed.get() && stream.compareAndSet(newStream, null))
+			newStream.close();
+	}
+
+	/**
+	 * Detach an SSE stream if it is still the current stream of this session
+	 * @param oldStream
+	 * @return true if the stream was the current stream
+	 */
+	boolean removeStream(SseEventStream oldStream) {
+		return stream.compareAndSet(oldStream, null);
+	}
+
+	/**
+	 * Close the session and its SSE stream
+	 * @return true if this call closed the session, false if it was already closed
+	 */
+	boolean close() {
+		if (!closed.compareAndSet(false, true))
+			return false;
+		SseEventStream current = stream.getAndSet(null);
+		if (current != null)
+			current.close();
+		return true;
+	}
+
+	public boolean isClosed() {
+		return closed.get();
+	}
+}
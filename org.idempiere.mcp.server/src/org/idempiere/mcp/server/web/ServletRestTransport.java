@@ -0,0 +1,640 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.compiere.util.CLogger;
+import org.idempiere.mcp.server.client.RestRequest;
+import org.idempiere.mcp.server.client.RestResponse;
+import org.idempiere.mcp.server.client.RestTransport;
+
+/**
+ * {@link RestTransport} dispatching requests to the iDempiere REST API web context of the same server with a
+ * cross-context {@link RequestDispatcher}, without the loopback HTTP hop.
+ * <p>
+ * A dispatch needs a container request to wrap, so only requests sent while a direct POST response is being
+ * processed are dispatched in-process. The container request isn't thread safe and can't take concurrent includes,
+ * so one MCP request has at most one dispatch in progress: a request sent while another one is dispatched, like
+ * the members of a batch or the calls of the async API, is declined and sent over HTTP instead of waiting for it.
+ * Requests sent outside of an MCP request (SSE responses, background token renewal), or when the REST API context
+ * isn't deployed, are also declined.
+ * <p>
+ * The include runs on a dispatch thread so the caller stops waiting for it when the deadline of the request passes.
+ * An include that outlives its deadline can't be cancelled, it is abandoned and its response discarded.
+ */
+class ServletRestTransport implements RestTransport {
+
+	/** context path of the iDempiere REST API */
+	static final String REST_CONTEXT_PATH = "/api";
+	/** path of the REST API version in its context */
+	private static final String REST_VERSION_PATH = "/v1";
+
+	// MCP request being processed by the current thread
+	private static final ThreadLocal<Binding> currentBinding = new ThreadLocal<>();
+	// runs the includes of requests with a deadline, at most one per MCP request
+	private static final ExecutorService dispatchExecutor = createDispatchExecutor();
+
+	private static final CLogger log = CLogger.getCLogger(ServletRestTransport.class);
+
+	private final ServletContext servletContext;
+
+	/**
+	 * @param servletContext context of the MCP servlet
+	 */
+	ServletRestTransport(ServletContext servletContext) {
+		this.servletContext = servletContext;
+	}
+
+	private static ExecutorService createDispatchExecutor() {
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1, TimeUnit.MINUTES, new SynchronousQueue<>(), r -> {
+			Thread thread = new Thread(r, "mcp-rest-dispatch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Container request of an MCP request, usable for one dispatch at a time until closed. Only the state is
+	 * guarded by the lock, not the dispatch.
+	 */
+	static class Binding {
+		private final HttpServletRequest request;
+		private boolean closed;
+		private boolean dispatching;
+		private long dispatchDeadline;
+
+		Binding(HttpServletRequest request) {
+			this.request = request;
+		}
+
+		/**
+		 * @param deadline deadline of the dispatch, epoch milliseconds or 0 for none
+		 * @return true if the caller may dispatch with the request, false if it is closed or already in use
+		 */
+		private synchronized boolean acquire(long deadline) {
+			if (closed || dispatching || !request.isAsyncStarted())
+				return false;
+			dispatching = true;
+			dispatchDeadline = deadline;
+			return true;
+		}
+
+		private synchronized void release() {
+			dispatching = false;
+			notifyAll();
+		}
+
+		/**
+		 * Stop dispatching with the request, waiting for a dispatch in progress until its deadline. Must be
+		 * called before the request is completed.
+		 */
+		synchronized void close() {
+			closed = true;
+			while (dispatching) {
+				long wait = dispatchDeadline > 0 ? dispatchDeadline - System.currentTimeMillis() : 0;
+				if (dispatchDeadline > 0 && wait <= 0) {
+					log.warning("Closing MCP request with an in-process REST API dispatch past its deadline");
+					return;
+				}
+				try {
+					wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dispatch the REST calls of the current thread with the request of binding
+	 * @param binding
+	 */
+	static void setCurrentBinding(Binding binding) {
+		currentBinding.set(binding);
+	}
+
+	static void clearCurrentBinding() {
+		currentBinding.remove();
+	}
+
+	@Override
+	public RestResponse send(RestRequest request) throws Exception {
+		return dispatch(currentBinding.get(), request);
+	}
+
+	/**
+	 * Declined, async calls are meant to run concurrently and the container request takes one dispatch at a time
+	 */
+	@Override
+	public CompletableFuture<RestResponse> sendAsync(RestRequest request, Executor executor) {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * @param binding MCP request to dispatch with, may be null
+	 * @param request
+	 * @return response, or null if the request can't be dispatched in-process
+	 * @throws IOException
+	 */
+	private RestResponse dispatch(Binding binding, RestRequest request) throws IOException {
+		if (binding == null)
+			return null;
+		ServletContext apiContext = servletContext.getContext(REST_CONTEXT_PATH);
+		if (apiContext == null || apiContext == servletContext || !REST_CONTEXT_PATH.equals(apiContext.getContextPath()))
+			return null;
+		RequestDispatcher dispatcher = apiContext.getRequestDispatcher(REST_VERSION_PATH + request.getPath());
+		if (dispatcher == null)
+			return null;
+		long deadline = request.getDeadline();
+		if (deadline > 0 && System.currentTimeMillis() >= deadline)
+			throw deadlineExceeded(request);
+		if (!binding.acquire(deadline))
+			return null;
+		if (deadline <= 0) {
+			try {
+				return include(dispatcher, binding, request);
+			} finally {
+				binding.release();
+			}
+		}
+		CompletableFuture<RestResponse> future;
+		try {
+			future = CompletableFuture.supplyAsync(() -> {
+				try {
+					return include(dispatcher, binding, request);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				} finally {
+					binding.release();
+				}
+			}, dispatchExecutor);
+		} catch (RejectedExecutionException e) {
+			binding.release();
+			return null;
+		}
+		try {
+			return future.get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw deadlineExceeded(request);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while dispatching " + request.getMethod() + " " + request.getPath());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+					? e.getCause().getCause() : e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException("In-process dispatch of " + request.getMethod() + " " + request.getPath() + " failed", cause);
+		}
+	}
+
+	private static RestResponse include(RequestDispatcher dispatcher, Binding binding, RestRequest request) throws IOException {
+		try {
+			DispatchResponse response = new DispatchResponse((HttpServletResponse) binding.request.getAsyncContext().getResponse());
+			dispatcher.include(new DispatchRequest(binding.request, request), response);
+			return response.toRestResponse();
+		} catch (ServletException e) {
+			throw new IOException("In-process dispatch of " + request.getMethod() + " " + request.getPath() + " failed", e);
+		}
+	}
+
+	private static HttpTimeoutException deadlineExceeded(RestRequest request) {
+		return new HttpTimeoutException("Deadline passed while dispatching " + request.getMethod() + " " + request.getPath());
+	}
+
+	/**
+	 * Request of the REST API call. Headers, method and body are those of the REST call, the request path is
+	 * the included path, not the path of the MCP request.
+	 */
+	private static class DispatchRequest extends HttpServletRequestWrapper {
+		private final RestRequest restRequest;
+		private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final byte[] body;
+
+		DispatchRequest(HttpServletRequest request, RestRequest restRequest) {
+			super(request);
+			this.restRequest = restRequest;
+			this.headers.putAll(restRequest.getHeaders());
+			this.body = restRequest.getBody() != null ? restRequest.getBody() : new byte[0];
+			if (restRequest.getBody() != null)
+				headers.put("Content-Length", Integer.toString(body.length));
+		}
+
+		@Override
+		public String getMethod() {
+			return restRequest.getMethod();
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return headers.get(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			String value = headers.get(name);
+			return Collections.enumeration(value != null ? List.of(value) : List.of());
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			return Collections.enumeration(headers.keySet());
+		}
+
+		@Override
+		public int getIntHeader(String name) {
+			String value = headers.get(name);
+			return value != null ? Integer.parseInt(value.trim()) : -1;
+		}
+
+		@Override
+		public long getDateHeader(String name) {
+			String value = headers.get(name);
+			if (value == null)
+				return -1;
+			return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		}
+
+		@Override
+		public String getContentType() {
+			return headers.get("Content-Type");
+		}
+
+		@Override
+		public int getContentLength() {
+			return body.length;
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			return body.length;
+		}
+
+		@Override
+		public String getCharacterEncoding() {
+			return StandardCharsets.UTF_8.name();
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			ByteArrayInputStream in = new ByteArrayInputStream(body);
+			return new ServletInputStream() {
+				@Override
+				public int read() {
+					return in.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					return in.read(b, off, len);
+				}
+
+				@Override
+				public boolean isFinished() {
+					return in.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setReadListener(ReadListener readListener) {
+					throw new IllegalStateException("Not an async request");
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() {
+			return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+		}
+
+		// the request path seen by the REST API is the included one
+		@Override
+		public String getRequestURI() {
+			String uri = (String) getAttribute(RequestDispatcher.INCLUDE_REQUEST_URI);
+			return uri != null ? uri : super.getRequestURI();
+		}
+
+		@Override
+		public StringBuffer getRequestURL() {
+			StringBuffer url = new StringBuffer();
+			url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort());
+			return url.append(getRequestURI());
+		}
+
+		@Override
+		public String getContextPath() {
+			String path = (String) getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH);
+			return path != null ? path : super.getContextPath();
+		}
+
+		@Override
+		public String getServletPath() {
+			String path = (String) getAttribute(RequestDispatcher.INCLUDE_SERVLET_PATH);
+			return path != null ? path : super.getServletPath();
+		}
+
+		@Override
+		public String getPathInfo() {
+			return (String) getAttribute(RequestDispatcher.INCLUDE_PATH_INFO);
+		}
+
+		@Override
+		public String getQueryString() {
+			return (String) getAttribute(RequestDispatcher.INCLUDE_QUERY_STRING);
+		}
+	}
+
+	/**
+	 * Response of the REST API call, buffered in memory. Nothing is written to the MCP response.
+	 */
+	private static class DispatchResponse extends HttpServletResponseWrapper {
+		private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private int status = SC_OK;
+		private String characterEncoding;
+		private ServletOutputStream outputStream;
+		private PrintWriter writer;
+
+		DispatchResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		RestResponse toRestResponse() {
+			if (writer != null)
+				writer.flush();
+			return new RestResponse(status, headers, new ByteArrayInputStream(body.toByteArray()));
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			status = sc;
+		}
+
+		@Override
+		public int getStatus() {
+			return status;
+		}
+
+		@Override
+		public void sendError(int sc) {
+			sendError(sc, null);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) {
+			status = sc;
+			body.reset();
+			if (msg != null)
+				body.writeBytes(msg.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void sendRedirect(String location) {
+			status = SC_FOUND;
+			setHeader("Location", location);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (value == null) {
+				headers.remove(name);
+				return;
+			}
+			List<String> values = new ArrayList<>();
+			values.add(value);
+			headers.put(name, values);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (value != null)
+				headers.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			setHeader(name, Integer.toString(value));
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			addHeader(name, Integer.toString(value));
+		}
+
+		@Override
+		public void setDateHeader(String name, long date) {
+			setHeader(name, formatDate(date));
+		}
+
+		@Override
+		public void addDateHeader(String name, long date) {
+			addHeader(name, formatDate(date));
+		}
+
+		private static String formatDate(long date) {
+			return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+					ZonedDateTime.ofInstant(Instant.ofEpochMilli(date), ZoneOffset.UTC));
+		}
+
+		@Override
+		public boolean containsHeader(String name) {
+			return headers.containsKey(name);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			List<String> values = headers.get(name);
+			return values != null && !values.isEmpty() ? values.get(0) : null;
+		}
+
+		@Override
+		public List<String> getHeaders(String name) {
+			List<String> values = headers.get(name);
+			return values != null ? values : List.of();
+		}
+
+		@Override
+		public List<String> getHeaderNames() {
+			return new ArrayList<>(headers.keySet());
+		}
+
+		@Override
+		public void setContentType(String type) {
+			setHeader("Content-Type", type);
+		}
+
+		@Override
+		public String getContentType() {
+			return getHeader("Content-Type");
+		}
+
+		@Override
+		public void setCharacterEncoding(String charset) {
+			characterEncoding = charset;
+		}
+
+		@Override
+		public String getCharacterEncoding() {
+			return characterEncoding != null ? characterEncoding : StandardCharsets.ISO_8859_1.name();
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			setIntHeader("Content-Length", len);
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			setHeader("Content-Length", Long.toString(len));
+		}
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			// the REST API is stateless, cookies aren't passed to the MCP client
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			if (outputStream == null) {
+				outputStream = new ServletOutputStream() {
+					@Override
+					public void write(int b) {
+						body.write(b);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) {
+						body.write(b, off, len);
+					}
+
+					@Override
+					public boolean isReady() {
+						return true;
+					}
+
+					@Override
+					public void setWriteListener(WriteListener writeListener) {
+						throw new IllegalStateException("Not an async response");
+					}
+				};
+			}
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() {
+			if (writer == null)
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())));
+			return writer;
+		}
+
+		@Override
+		public void flushBuffer() {
+			if (writer != null)
+				writer.flush();
+		}
+
+		@Override
+		public void setBufferSize(int size) {
+			// buffered in memory
+		}
+
+		@Override
+		public int getBufferSize() {
+			return body.size();
+		}
+
+		@Override
+		public boolean isCommitted() {
+			return false;
+		}
+
+		@Override
+		public void reset() {
+			resetBuffer();
+			headers.clear();
+			status = SC_OK;
+		}
+
+		@Override
+		public void resetBuffer() {
+			if (writer != null)
+				writer.flush();
+			body.reset();
+		}
+	}
+}
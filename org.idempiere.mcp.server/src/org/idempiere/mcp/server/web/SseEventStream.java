@@ -0,0 +1,337 @@
+/**********************************************************************
+* This file is part of iDempiere ERP Open Source                      *
+* http://www.idempiere.org                                            *
+*                                                                     *
+* Copyright (C) Contributors                                          *
+*                                                                     *
+* This program is free software; you can redistribute it and/or       *
+* modify it under the terms of the GNU General Public License         *
+* as published by the Free Software Foundation; either version 2      *
+* of the License, or (at your option) any later version.              *
+*                                                                     *
+* This program is distributed in the hope that it will be useful,     *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the        *
+* GNU General Public License for more details.                        *
+*                                                                     *
+* You should have received a copy of the GNU General Public License   *
+* along with this program; if not, write to the Free Software         *
+* Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,          *
+* MA 02110-1301, USA.                                                 *
+*                                                                     *
+* Contributors:                                                       *
+* - Trek Global Corporation                                           *
+* - hengsin                                                           *
+**********************************************************************/
+package org.idempiere.mcp.server.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.compiere.util.CLogger;
+
+/**
+ * Non-blocking Server-Sent Events writer for one MCP session.
+ * <p>
+ * Events are appended to a bounded per-session queue and drained through the Servlet 3.1
+ * {@link WriteListener} callbacks, so the thread producing an event never blocks on the client.
+ * A consumer that lets the queue overflow, or that stays unwritable for longer than the stall
+ * timeout, is treated as a slow consumer and disconnected.
+ * <p>
+ * A gzip encoded stream compresses each event as it is queued and sync flushes the compressor, so every event
+ * can be decoded by the client as soon as it arrives.
+ */
+class SseEventStream implements WriteListener {
+
+	private static final CLogger log = CLogger.getCLogger(SseEventStream.class);
+
+	// metrics across all streams
+	private static final AtomicLong totalEventsSent = new AtomicLong();
+	private static final AtomicLong totalEventsDropped = new AtomicLong();
+	private static final AtomicLong totalSlowConsumerDisconnects = new AtomicLong();
+	private static final AtomicInteger totalQueuedEvents = new AtomicInteger();
+
+	private final String sessionId;
+	private final AsyncContext asyncContext;
+	private final ServletOutputStream out;
+	private final int maxQueuedEvents;
+	private final long stallTimeoutMs;
+	/** compressor of a gzip encoded stream, null if not compressed. Also guards the order of compressed events */
+	private final GZIPOutputStream gzip;
+	private final ByteArrayOutputStream gzipBuffer;
+
+	private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queuedEvents = new AtomicInteger();
+	private final AtomicLong queuedBytes = new AtomicLong();
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+	private final AtomicLong eventsSent = new AtomicLong();
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final Object writeLock = new Object();
+	/** guarded by writeLock */
+	private boolean flushPending = false;
+	/** time the output last became unwritable with data pending, 0 if writable */
+	private volatile long stalledSince = 0;
+
+	/**
+	 * @param sessionId       MCP session id
+	 * @param asyncContext    async context of the SSE GET request
+	 * @param out             output stream of the SSE response
+	 * @param maxQueuedEvents maximum number of undelivered events before the consumer is disconnected
+	 * @param stallTimeoutMs  maximum time the output may stay unwritable before the consumer is disconnected
+	 * @param gzip            true to gzip encode the stream
+	 * @throws IOException
+	 */
+	SseEventStream(String sessionId, AsyncContext asyncContext, ServletOutputStream out, int maxQueuedEvents,
+			long stallTimeoutMs, boolean gzip) throws IOException {
+		this.sessionId = sessionId;
+		this.asyncContext = asyncContext;
+		this.out = out;
+		this.maxQueuedEvents = maxQueuedEvents;
+		this.stallTimeoutMs = stallTimeoutMs;
+		this.gzipBuffer = gzip ? new ByteArrayOutputStream() : null;
+		this.gzip = gzip ? new GZIPOutputStream(gzipBuffer, 512, true) : null;
+	}
+
+	/**
+	 * Register this stream as the write listener of the response output stream.
+	 * Must be called on the request thread before any event is queued.
+	 */
+	void start() {
+		out.setWriteListener(this);
+	}
+
+	/**
+	 * Queue a named event.
+	 * @param eventName
+	 * @param data
+	 * @return false if the event was dropped
+	 */
+	boolean sendEvent(String eventName, String data) {
+		return sendEvent(eventName, data.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Queue a named event with UTF-8 encoded data (must not contain line breaks).
+	 * @param eventName
+	 * @param data
+	 * @return false if the event was dropped
+	 */
+	boolean sendEvent(String eventName, byte[] data) {
+		byte[] prefix = ("event: " + eventName + "\n" + "data: ").getBytes(StandardCharsets.UTF_8);
+		byte[] event = new byte[prefix.length + data.length + 2];
+		System.arraycopy(prefix, 0, event, 0, prefix.length);
+		System.arraycopy(data, 0, event, prefix.length, data.length);
+		event[event.length - 2] = '\n';
+		event[event.length - 1] = '\n';
+		return offer(event);
+	}
+
+	/**
+	 * Queue an SSE comment line (ignored by clients, keeps proxies from timing out idle streams).
+	 * @param comment
+	 * @return false if the comment was dropped
+	 */
+	boolean sendComment(String comment) {
+		return offer((": " + comment + "\n\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private boolean offer(byte[] bytes) {
+		if (closed.get()) {
+			totalEventsDropped.incrementAndGet();
+			return false;
+		}
+		if (isStalled(System.currentTimeMillis())) {
+			totalEventsDropped.incrementAndGet();
+			disconnectSlowConsumer("output stalled for more than " + stallTimeoutMs + " ms");
+			return false;
+		}
+		int depth = queuedEvents.incrementAndGet();
+		if (depth > maxQueuedEvents) {
+			queuedEvents.decrementAndGet();
+			totalEventsDropped.incrementAndGet();
+			disconnectSlowConsumer("outbound queue full (" + maxQueuedEvents + " events)");
+			return false;
+		}
+		maxQueueDepth.accumulateAndGet(depth, Math::max);
+		totalQueuedEvents.incrementAndGet();
+		if (gzip != null) {
+			// compressed events must be queued in the order they went through the compressor
+			synchronized (gzip) {
+				enqueue(compress(bytes));
+			}
+		} else {
+			enqueue(bytes);
+		}
+		drain();
+		return true;
+	}
+
+	private void enqueue(byte[] bytes) {
+		queuedBytes.addAndGet(bytes.length);
+		queue.add(bytes);
+	}
+
+	/**
+	 * @param data
+	 * @return compressed data, sync flushed so it can be decoded without the data that follows
+	 */
+	private byte[] compress(byte[] data) {
+		try {
+			gzip.write(data);
+			gzip.flush();
+		} catch (IOException e) {
+			// not thrown by an in-memory buffer
+			throw new IllegalStateException(e);
+		}
+		byte[] compressed = gzipBuffer.toByteArray();
+		gzipBuffer.reset();
+		return compressed;
+	}
+
+	/**
+	 * Write queued events for as long as the container accepts data without blocking.
+	 */
+	private void drain() {
+		synchronized (writeLock) {
+			if (closed.get())
+				return;
+			try {
+				while (out.isReady()) {
+					byte[] next = queue.poll();
+					if (next == null) {
+						if (flushPending) {
+							flushPending = false;
+							out.flush();
+							continue;
+						}
+						stalledSince = 0;
+						return;
+					}
+					queuedEvents.decrementAndGet();
+					totalQueuedEvents.decrementAndGet();
+					queuedBytes.addAndGet(-next.length);
+					out.write(next);
+					flushPending = true;
+					stalledSince = 0;
+					eventsSent.incrementAndGet();
+					totalEventsSent.incrementAndGet();
+				}
+				// container will call onWritePossible once the client catches up
+				if (stalledSince == 0)
+					stalledSince = System.currentTimeMillis();
+			} catch (IOException | IllegalStateException e) {
+				if (log.isLoggable(Level.FINE))
+					log.log(Level.FINE, "Failed to write SSE event for session: " + sessionId, e);
+				close();
+			}
+		}
+	}
+
+	@Override
+	public void onWritePossible() throws IOException {
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		if (log.isLoggable(Level.FINE))
+			log.log(Level.FINE, "SSE write error for session: " + sessionId, t);
+		close();
+	}
+
+	/**
+	 * @param now current time in milliseconds
+	 * @return true if the output has been unwritable for longer than the stall timeout
+	 */
+	boolean isStalled(long now) {
+		long since = stalledSince;
+		return since > 0 && now - since > stallTimeoutMs;
+	}
+
+	/**
+	 * Disconnect this stream because the client is not reading fast enough.
+	 * @param reason
+	 */
+	void disconnectSlowConsumer(String reason) {
+		if (!closed.get()) {
+			totalSlowConsumerDisconnects.incrementAndGet();
+			log.warning("MCP SSE slow consumer disconnected, session: " + sessionId + ", reason: " + reason);
+			close();
+		}
+	}
+
+	/**
+	 * Discard pending events and complete the async context.
+	 */
+	void close() {
+		if (closed.compareAndSet(false, true)) {
+			synchronized (writeLock) {
+				int discarded = 0;
+				while (queue.poll() != null)
+					discarded++;
+				if (discarded > 0) {
+					queuedEvents.addAndGet(-discarded);
+					totalQueuedEvents.addAndGet(-discarded);
+					totalEventsDropped.addAndGet(discarded);
+				}
+				queuedBytes.set(0);
+			}
+			try {
+				asyncContext.complete();
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	boolean isClosed() {
+		return closed.get();
+	}
+
+	AsyncContext getAsyncContext() {
+		return asyncContext;
+	}
+
+	int getQueuedEvents() {
+		return queuedEvents.get();
+	}
+
+	long getQueuedBytes() {
+		return queuedBytes.get();
+	}
+
+	int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	long getEventsSent() {
+		return eventsSent.get();
+	}
+
+	static long getTotalEventsSent() {
+		return totalEventsSent.get();
+	}
+
+	static long getTotalEventsDropped() {
+		return totalEventsDropped.get();
+	}
+
+	static long getTotalSlowConsumerDisconnects() {
+		return totalSlowConsumerDisconnects.get();
+	}
+
+	static int getTotalQueuedEvents() {
+		return totalQueuedEvents.get();
+	}
+}